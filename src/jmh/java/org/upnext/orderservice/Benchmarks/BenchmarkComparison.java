@@ -0,0 +1,89 @@
+package org.upnext.orderservice.Benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files and exits with 1 when a benchmark got slower than the
+ * baseline by more than the threshold percentage, beyond the error of both runs. Throughput
+ * scores regress downwards, time scores upwards. A missing baseline is not a failure, so a
+ * first run only records results.
+ * <p>
+ * Usage: BenchmarkComparison baseline.json current.json [threshold-percent]
+ */
+public final class BenchmarkComparison {
+
+    private record Score(String mode, double score, double error, String unit) {
+    }
+
+    private BenchmarkComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkComparison baseline.json current.json [threshold-percent]");
+            System.exit(2);
+        }
+        File baselineFile = new File(args[0]);
+        File currentFile = new File(args[1]);
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+
+        if (!baselineFile.isFile()) {
+            System.out.printf("No baseline at %s; copy %s there to compare later runs against it%n", baselineFile, currentFile);
+            return;
+        }
+
+        Map<String, Score> baseline = read(baselineFile);
+        Map<String, Score> current = read(currentFile);
+        List<String> regressions = new ArrayList<>();
+
+        System.out.printf("%-90s %14s %14s %9s%n", "Benchmark", "Baseline", "Current", "Change");
+        current.forEach((name, now) -> {
+            Score before = baseline.get(name);
+            if (before == null || !before.mode().equals(now.mode()) || !before.unit().equals(now.unit())) {
+                System.out.printf("%-90s %14s %14.3f %9s%n", name, "-", now.score(), "new");
+                return;
+            }
+            double change = (now.score() - before.score()) / before.score() * 100;
+            // positive when the benchmark got worse, whichever direction its unit counts
+            double worse = "thrpt".equals(now.mode()) ? -change : change;
+            boolean outsideError = Math.abs(now.score() - before.score()) > before.error() + now.error();
+            boolean regressed = worse > threshold && outsideError;
+            System.out.printf("%-90s %14.3f %14.3f %+8.1f%%%s%n", name, before.score(), now.score(), change,
+                    regressed ? "  REGRESSION" : "");
+            if (regressed) {
+                regressions.add(name);
+            }
+        });
+
+        if (!regressions.isEmpty()) {
+            System.out.printf("%d benchmarks regressed by more than %.0f%%: %s%n", regressions.size(), threshold, regressions);
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Score> read(File file) throws IOException {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode result : new ObjectMapper().readTree(file)) {
+            StringBuilder name = new StringBuilder(result.path("benchmark").asText());
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            if (!params.isEmpty()) {
+                name.append(params);
+            }
+            JsonNode metric = result.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0);
+            scores.put(name.toString(), new Score(result.path("mode").asText(), metric.path("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error, metric.path("scoreUnit").asText()));
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,70 @@
+package org.upnext.orderservice.Benchmarks;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.Models.OrderItem;
+import org.upnext.sharedlibrary.Dtos.CartDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Orders and carts shaped like production ones, built the same way for every benchmark.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    // configured like the ObjectMapper Spring Boot builds for the web layer
+    static ObjectMapper objectMapper() {
+        return new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    // a placed order: ids assigned and totals computed, as it is after persist
+    static Order order(long id, int items) {
+        Order order = new Order();
+        order.setId(id);
+        order.setUserId(42L);
+        order.setOrderDate(LocalDateTime.of(2025, 1, 1, 12, 0));
+        order.setDeliveryDate(order.getOrderDate().plusDays(3));
+        order.setStockReservationId(UUID.randomUUID().toString());
+        order.setPaymentTransactionId("cs_test_" + id);
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            OrderItem item = new OrderItem();
+            item.setId(id * 1000 + i);
+            item.setOrder(order);
+            item.setProductId(i + 1L);
+            item.setQuantity(i % 3 + 1);
+            item.setPrice(4.99 + i);
+            orderItems.add(item);
+        }
+        order.setItems(orderItems);
+        order.computeTotals();
+        return order;
+    }
+
+    // read from JSON like the cart-service response, so only the wire format is assumed here
+    static CartDto cart(ObjectMapper objectMapper, int items) throws Exception {
+        StringBuilder json = new StringBuilder("{\"userId\":42,\"items\":[");
+        for (int i = 0; i < items; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"quantity\":").append(i % 3 + 1)
+                    .append(",\"product\":{\"id\":").append(i + 1)
+                    .append(",\"name\":\"Product ").append(i + 1)
+                    .append("\",\"price\":").append(4.99 + i)
+                    .append(",\"stock\":100}}");
+        }
+        return objectMapper.readValue(json.append("]}").toString(), CartDto.class);
+    }
+}
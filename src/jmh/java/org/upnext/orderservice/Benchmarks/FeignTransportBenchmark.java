@@ -0,0 +1,165 @@
+package org.upnext.orderservice.Benchmarks;
+
+import feign.Client;
+import feign.Feign;
+import feign.RequestLine;
+import feign.hc5.ApacheHttp5Client;
+import feign.http2client.Http2Client;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.pool.PoolReusePolicy;
+import org.apache.hc.core5.util.TimeValue;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.Http2;
+import org.springframework.boot.web.server.WebServer;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Feign transports under the product enrichment fan-out of fillProductDto: a page of
+ * distinct product ids fetched one by one through the per-id endpoint, spread over as many
+ * threads as product.enrichment.parallelism, against a local Tomcat that speaks HTTP/1.1
+ * and h2c.
+ * <ul>
+ *     <li>default: Feign's HttpURLConnection client, whose JDK keep-alive cache holds only
+ *     http.maxConnections (5) idle connections per host</li>
+ *     <li>hc5: the pooled Apache HttpClient 5 transport, configured as in application.properties</li>
+ *     <li>http2: java.net.http over HTTP/2, every call a stream on one connection</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FeignTransportBenchmark {
+
+    private static final int PARALLELISM = 32;
+
+    @Param({"default", "hc5", "http2"})
+    private String transport;
+
+    @Param({"20", "100"})
+    private int products;
+
+    // per-call latency of the stand-in product-service
+    @Param({"0", "5"})
+    private long latencyMillis;
+
+    interface ProductApi {
+        @RequestLine("GET /products/{id}")
+        String getProduct(@feign.Param("id") long id);
+    }
+
+    private WebServer server;
+    private CloseableHttpClient pooledClient;
+    private ExecutorService fanOut;
+    private ProductApi productApi;
+
+    @Setup
+    public void setUp() {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        Http2 http2 = new Http2();
+        http2.setEnabled(true);
+        factory.setHttp2(http2);
+        server = factory.getWebServer(context ->
+                context.addServlet("products", new ProductServlet(latencyMillis)).addMapping("/products/*"));
+        server.start();
+
+        fanOut = Executors.newFixedThreadPool(PARALLELISM);
+        productApi = Feign.builder()
+                .client(client())
+                .target(ProductApi.class, "http://127.0.0.1:" + server.getPort());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        fanOut.shutdownNow();
+        if (pooledClient != null) {
+            pooledClient.close();
+        }
+        server.stop();
+    }
+
+    @Benchmark
+    public int enrichPage() {
+        List<CompletableFuture<String>> calls = new ArrayList<>(products);
+        for (long id = 1; id <= products; id++) {
+            long productId = id;
+            calls.add(CompletableFuture.supplyAsync(() -> productApi.getProduct(productId), fanOut));
+        }
+        int bytes = 0;
+        for (CompletableFuture<String> call : calls) {
+            bytes += call.join().length();
+        }
+        return bytes;
+    }
+
+    private Client client() {
+        return switch (transport) {
+            case "default" -> new Client.Default(null, null);
+            case "hc5" -> {
+                pooledClient = HttpClients.custom()
+                        .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                                .setMaxConnTotal(400)
+                                .setMaxConnPerRoute(128)
+                                .setConnPoolPolicy(PoolReusePolicy.LIFO)
+                                .build())
+                        .evictExpiredConnections()
+                        .evictIdleConnections(TimeValue.ofSeconds(30))
+                        .build();
+                yield new ApacheHttp5Client(pooledClient);
+            }
+            case "http2" -> new Http2Client(HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build());
+            default -> throw new IllegalArgumentException("Unknown transport " + transport);
+        };
+    }
+
+    private static class ProductServlet extends HttpServlet {
+
+        private final long latencyMillis;
+
+        ProductServlet(long latencyMillis) {
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            if (latencyMillis > 0) {
+                try {
+                    Thread.sleep(latencyMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            long id = Long.parseLong(request.getPathInfo().substring(1));
+            response.setContentType("application/json");
+            response.getWriter().write("{\"id\":" + id + ",\"name\":\"Product " + id + "\",\"price\":" + (4.99 + id % 50) +
+                    ",\"stock\":100,\"description\":\"" + "x".repeat(200) + "\"}");
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(FeignTransportBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,65 @@
+package org.upnext.orderservice.Benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.upnext.orderservice.Mappers.OrderMapper;
+import org.upnext.orderservice.Mappers.OrderMapperImpl;
+import org.upnext.sharedlibrary.Dtos.OrderDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Serializing a page of orders the way the order endpoints do, by page size: through the
+ * ObjectMapper as the message converter does, and through a writer resolved once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderJsonBenchmark {
+
+    @Param({"20", "100"})
+    private int orders;
+
+    private ObjectMapper objectMapper;
+    private ObjectWriter listWriter;
+    private List<OrderDto> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = BenchmarkData.objectMapper();
+        listWriter = objectMapper.writerFor(new TypeReference<List<OrderDto>>() {
+        });
+        OrderMapper orderMapper = new OrderMapperImpl();
+        page = LongStream.rangeClosed(1, orders)
+                .mapToObj(id -> orderMapper.toOrderDto(BenchmarkData.order(id, 3)))
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] viaObjectMapper() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] viaListWriter() throws Exception {
+        return listWriter.writeValueAsBytes(page);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(OrderJsonBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
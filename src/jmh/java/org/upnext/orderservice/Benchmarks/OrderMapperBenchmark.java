@@ -0,0 +1,58 @@
+package org.upnext.orderservice.Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.upnext.orderservice.Mappers.OrderMapper;
+import org.upnext.orderservice.Mappers.OrderMapperImpl;
+import org.upnext.orderservice.Models.Order;
+import org.upnext.sharedlibrary.Dtos.CartDto;
+import org.upnext.sharedlibrary.Dtos.OrderDto;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The MapStruct mappings on the order paths: rendering an order for a response and turning
+ * a cart into an order at placement, by number of items.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderMapperBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int items;
+
+    private OrderMapper orderMapper;
+    private Order order;
+    private CartDto cart;
+
+    @Setup
+    public void setUp() throws Exception {
+        orderMapper = new OrderMapperImpl();
+        order = BenchmarkData.order(1L, items);
+        cart = BenchmarkData.cart(BenchmarkData.objectMapper(), items);
+    }
+
+    @Benchmark
+    public OrderDto toOrderDto() {
+        return orderMapper.toOrderDto(order);
+    }
+
+    @Benchmark
+    public Order fromCartDto() {
+        return orderMapper.fromCartDto(cart);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(OrderMapperBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,54 @@
+package org.upnext.orderservice.Benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.upnext.orderservice.Models.Order;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order.getTotalCost, called for every rendered order: the stored total against the
+ * fallback over the items that orders not yet backfilled still take.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderTotalCostBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int items;
+
+    private Order stored;
+    private Order legacy;
+
+    @Setup
+    public void setUp() {
+        stored = BenchmarkData.order(1L, items);
+        legacy = BenchmarkData.order(2L, items);
+        legacy.setSubtotalCents(null);
+        legacy.setTotalCents(null);
+    }
+
+    @Benchmark
+    public Double storedTotal() {
+        return stored.getTotalCost();
+    }
+
+    @Benchmark
+    public Double itemFallback() {
+        return legacy.getTotalCost();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(OrderTotalCostBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
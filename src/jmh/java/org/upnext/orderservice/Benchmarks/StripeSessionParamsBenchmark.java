@@ -0,0 +1,60 @@
+package org.upnext.orderservice.Benchmarks;
+
+import com.stripe.param.checkout.SessionCreateParams;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.Services.Implementation.StripeApiMetrics;
+import org.upnext.orderservice.Services.Implementation.StripePaymentService;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local work of a checkout before the Stripe call: building the session parameters, and
+ * the form encoding the Stripe client applies to them, by number of line items.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StripeSessionParamsBenchmark {
+
+    @Param({"1", "10", "50"})
+    private int items;
+
+    private StripePaymentService stripePaymentService;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        stripePaymentService = new StripePaymentService(new StripeApiMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(stripePaymentService, "successUrl", "https://shop.example.com/payment/success");
+        ReflectionTestUtils.setField(stripePaymentService, "failureUrl", "https://shop.example.com/payment/failure");
+        order = BenchmarkData.order(1L, items);
+    }
+
+    @Benchmark
+    public SessionCreateParams buildParams() {
+        return stripePaymentService.buildSessionParams(order);
+    }
+
+    @Benchmark
+    public Map<String, Object> buildAndEncodeParams() {
+        return stripePaymentService.buildSessionParams(order).toMap();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(StripeSessionParamsBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
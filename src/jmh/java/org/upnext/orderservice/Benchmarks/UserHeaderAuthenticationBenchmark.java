@@ -0,0 +1,94 @@
+package org.upnext.orderservice.Benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.upnext.orderservice.Jwt.JwtAuthFilter;
+import org.upnext.orderservice.Jwt.JwtUtils;
+import org.upnext.orderservice.Jwt.UserHeaderAuthenticator;
+import org.upnext.orderservice.Utils.ForwardedUserContext;
+import org.upnext.sharedlibrary.Dtos.UserDto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request cost of turning an X-User header into an authenticated user: the previous
+ * decode-every-time path against the cached authenticator, for a header seen before, and
+ * the whole JwtAuthFilter pass around it.
+ * Run the main method, or with -prof gc to compare allocation per request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UserHeaderAuthenticationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private UserHeaderAuthenticator authenticator;
+    private JwtAuthFilter filter;
+    private String header;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        authenticator = new UserHeaderAuthenticator(objectMapper, 10_000, Duration.ofMinutes(5));
+        filter = new JwtAuthFilter(new JwtUtils(), authenticator);
+
+        UserDto user = new UserDto();
+        user.setId(42L);
+        user.setName("Benchmark User");
+        user.setEmail("user@example.com");
+        user.setRole(List.of("USER"));
+        user.setPhoneNumber("+100000000");
+        user.setAddress("1 Benchmark Street");
+        header = Base64.getEncoder().encodeToString(objectMapper.writeValueAsBytes(user));
+        authenticator.authenticate(header);
+    }
+
+    @Benchmark
+    public List<? extends GrantedAuthority> decodeEveryRequest() throws Exception {
+        String decoded = new String(Base64.getDecoder().decode(header), StandardCharsets.UTF_8);
+        UserDto user = objectMapper.readValue(decoded, UserDto.class);
+        return user.getRole().stream()
+                .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                .toList();
+    }
+
+    @Benchmark
+    public UserHeaderAuthenticator.UserAuthentication cachedAuthenticator() {
+        return authenticator.authenticate(header);
+    }
+
+    @Benchmark
+    public Authentication filter() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders/me");
+        request.addHeader(ForwardedUserContext.HEADER, header);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(UserHeaderAuthenticationBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
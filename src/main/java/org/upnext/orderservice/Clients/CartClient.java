@@ -6,7 +6,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.upnext.orderservice.Configurations.FeignClientConfiguration;
 import org.upnext.sharedlibrary.Dtos.CartDto;
 
-@FeignClient(name = "cart-service", configuration = FeignClientConfiguration.class)
+@FeignClient(name = "cart-service", url = "${clients.cart.url:}", configuration = FeignClientConfiguration.class)
 public interface CartClient {
     @GetMapping("/carts/me")
     CartDto getCart();
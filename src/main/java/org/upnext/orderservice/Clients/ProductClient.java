@@ -3,14 +3,26 @@ package org.upnext.orderservice.Clients;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.*;
 import org.upnext.orderservice.Configurations.FeignClientConfiguration;
+import org.upnext.orderservice.Dtos.StockReservationRequest;
 import org.upnext.sharedlibrary.Dtos.ProductDto;
 import org.upnext.sharedlibrary.Dtos.StockUpdateRequest;
 
-@FeignClient(name = "product-service", configuration =  FeignClientConfiguration.class)
+import java.util.List;
+
+@FeignClient(name = "product-service", url = "${clients.product.url:}", configuration =  FeignClientConfiguration.class)
 public interface ProductClient {
     @GetMapping("/products/{productId}")
     ProductDto getProduct(@PathVariable Long productId);
 
+    @GetMapping("/products")
+    List<ProductDto> getProducts(@RequestParam("ids") List<Long> ids);
+
     @PutMapping("/products/{id}/stock")
     void updateStock(@PathVariable Long id, @RequestBody StockUpdateRequest stockUpdateRequest);
+
+    @PostMapping("/products/stock/reservations")
+    void reserveStock(@RequestBody StockReservationRequest stockReservationRequest);
+
+    @DeleteMapping("/products/stock/reservations/{reservationId}")
+    void releaseStock(@PathVariable String reservationId);
 }
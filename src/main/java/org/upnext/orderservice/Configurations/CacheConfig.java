@@ -0,0 +1,77 @@
+package org.upnext.orderservice.Configurations;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.upnext.orderservice.Services.Implementation.ProductBatchLoader;
+import org.upnext.orderservice.Utils.ForwardedUserContext;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PRODUCTS_CACHE = "products";
+    public static final String ORDER_HISTORY_CACHE = "orderHistory";
+
+    @Bean
+    public CacheManager cacheManager(ProductBatchLoader productBatchLoader,
+                                     @Value("${product.cache.maximum-size:10000}") long maximumSize,
+                                     @Value("${product.cache.expire-after-write:10m}") Duration expireAfterWrite,
+                                     @Value("${product.cache.refresh-after-write:1m}") Duration refreshAfterWrite,
+                                     @Value("${orders.history-cache.maximum-size:50000}") long historyMaximumSize,
+                                     @Value("${orders.history-cache.expire-after-write:5m}") Duration historyExpireAfterWrite) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(PRODUCTS_CACHE, Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .refreshAfterWrite(refreshAfterWrite)
+                .executor(productRefreshExecutor())
+                .recordStats()
+                .build(productCacheLoader(productBatchLoader)));
+        // first page of each user's history; evicted on every change, the expiry only bounds missed evictions
+        cacheManager.registerCustomCache(ORDER_HISTORY_CACHE, Caffeine.newBuilder()
+                .maximumSize(historyMaximumSize)
+                .expireAfterWrite(historyExpireAfterWrite)
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+
+    // refreshes run off the reading thread, where neither the request nor its X-User is visible;
+    // they are sent with the X-User of the read that triggered them, as a miss on that read would be
+    private Executor productRefreshExecutor() {
+        return task -> {
+            String userHeader = ForwardedUserContext.current();
+            ForkJoinPool.commonPool().execute(() -> ForwardedUserContext.runAs(userHeader, task));
+        };
+    }
+
+    // misses are resolved through the batch loader, so a getAll over many ids stays one bulk round-trip
+    private CacheLoader<Object, Object> productCacheLoader(ProductBatchLoader productBatchLoader) {
+        return new CacheLoader<>() {
+            @Override
+            public Object load(Object productId) {
+                return productBatchLoader.loadAll(List.of((Long) productId)).get(productId);
+            }
+
+            @Override
+            public Map<Object, Object> loadAll(Set<?> productIds) {
+                List<Long> ids = productIds.stream().map(Long.class::cast).toList();
+                return new HashMap<>(productBatchLoader.loadAll(ids));
+            }
+        };
+    }
+}
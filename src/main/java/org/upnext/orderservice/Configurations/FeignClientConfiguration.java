@@ -1,11 +1,13 @@
 package org.upnext.orderservice.Configurations;
 
+import feign.Capability;
 import feign.RequestInterceptor;
-import jakarta.servlet.http.HttpServletRequest;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.context.request.RequestContextHolder;
-import org.springframework.web.context.request.ServletRequestAttributes;
+import org.upnext.orderservice.Utils.ForwardedUserContext;
 
 @Configuration
 public class FeignClientConfiguration {
@@ -13,17 +15,24 @@ public class FeignClientConfiguration {
     @Bean
     public RequestInterceptor requestInterceptor() {
         return requestTemplate -> {
-            ServletRequestAttributes attributes =
-                    (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
-            if (attributes != null) {
-                HttpServletRequest request = attributes.getRequest();
-                String authorizationHeader = request.getHeader("X-User");
-                if (authorizationHeader != null) {
-                    requestTemplate.header("X-User", authorizationHeader);
-                }
-
+            String userHeader = ForwardedUserContext.current();
+            if (userHeader != null) {
+                requestTemplate.header(ForwardedUserContext.HEADER, userHeader);
             }
         };
     }
 
+    // timeouts are set per client under spring.cloud.openfeign.client.config.<name>
+    @Bean
+    public Capability resilienceCapability(CircuitBreakerRegistry circuitBreakerRegistry,
+                                           BulkheadRegistry bulkheadRegistry,
+                                           MeterRegistry meterRegistry) {
+        return new FeignResilienceCapability(circuitBreakerRegistry, bulkheadRegistry, meterRegistry);
+    }
+
+    // compressed bodies the java.net.http transport leaves for the decoder
+    @Bean
+    public Capability gzipResponseCapability() {
+        return new GzipResponseCapability();
+    }
 }
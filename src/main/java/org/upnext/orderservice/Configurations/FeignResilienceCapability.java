@@ -0,0 +1,82 @@
+package org.upnext.orderservice.Configurations;
+
+import feign.Capability;
+import feign.Client;
+import feign.Request;
+import feign.Response;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+
+/**
+ * Runs every request of a Feign client through the bulkhead and the circuit breaker named
+ * after the client (cart-service, product-service), configured under resilience4j.* .
+ * Wrapping the transport keeps the call on the caller's thread, so the forwarded X-User
+ * and the exception types callers handle stay as they are; a rejected call fails fast
+ * with BulkheadFullException or CallNotPermittedException instead of waiting for its
+ * timeout. Connection failures, timeouts and 5xx responses count against the breaker,
+ * 4xx responses do not.
+ */
+public class FeignResilienceCapability implements Capability {
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+    private final MeterRegistry meterRegistry;
+
+    public FeignResilienceCapability(CircuitBreakerRegistry circuitBreakerRegistry,
+                                     BulkheadRegistry bulkheadRegistry,
+                                     MeterRegistry meterRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Client enrich(Client client) {
+        return (request, options) -> execute(client, request, options);
+    }
+
+    private Response execute(Client client, Request request, Request.Options options) throws IOException {
+        String name = request.requestTemplate().feignTarget().name();
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(name);
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker(name);
+
+        if (!bulkhead.tryAcquirePermission()) {
+            rejected(name, "bulkhead");
+            throw BulkheadFullException.createBulkheadFullException(bulkhead);
+        }
+        try {
+            if (!circuitBreaker.tryAcquirePermission()) {
+                rejected(name, "circuit_open");
+                throw CallNotPermittedException.createCallNotPermittedException(circuitBreaker);
+            }
+            long start = circuitBreaker.getCurrentTimestamp();
+            try {
+                Response response = client.execute(request, options);
+                long duration = circuitBreaker.getCurrentTimestamp() - start;
+                if (response.status() >= 500) {
+                    circuitBreaker.onError(duration, circuitBreaker.getTimestampUnit(),
+                            new IOException(name + " answered " + response.status()));
+                } else {
+                    circuitBreaker.onSuccess(duration, circuitBreaker.getTimestampUnit());
+                }
+                return response;
+            } catch (IOException | RuntimeException e) {
+                circuitBreaker.onError(circuitBreaker.getCurrentTimestamp() - start, circuitBreaker.getTimestampUnit(), e);
+                throw e;
+            }
+        } finally {
+            bulkhead.onComplete();
+        }
+    }
+
+    private void rejected(String client, String reason) {
+        meterRegistry.counter("feign.client.rejections", "clientName", client, "reason", reason).increment();
+    }
+}
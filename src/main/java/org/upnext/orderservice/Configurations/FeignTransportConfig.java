@@ -0,0 +1,28 @@
+package org.upnext.orderservice.Configurations;
+
+import org.apache.hc.core5.util.TimeValue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.openfeign.clientconfig.HttpClient5FeignConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Spring Cloud OpenFeign builds the pooled Apache HttpClient 5 transport from the
+ * spring.cloud.openfeign.httpclient.* properties but only closes connections past their
+ * time-to-live. Connections left idle after a fan-out are closed here too, before the
+ * downstream or a load balancer in between drops them and the next call fails on a
+ * stale socket.
+ */
+@Configuration
+@ConditionalOnProperty(value = "spring.cloud.openfeign.httpclient.hc5.enabled", matchIfMissing = true)
+public class FeignTransportConfig {
+
+    @Bean
+    public HttpClient5FeignConfiguration.HttpClientBuilderCustomizer idleConnectionEviction(
+            @Value("${feign.transport.idle-timeout:30s}") Duration idleTimeout) {
+        return builder -> builder.evictIdleConnections(TimeValue.ofMilliseconds(idleTimeout.toMillis()));
+    }
+}
@@ -0,0 +1,57 @@
+package org.upnext.orderservice.Configurations;
+
+import feign.Capability;
+import feign.Response;
+import feign.codec.Decoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Response compression makes every Feign request ask for gzip, but only Apache HttpClient
+ * unpacks the body itself and drops Content-Encoding. On the java.net.http transport
+ * (FEIGN_HTTP2_ENABLED) the body arrives compressed, so it is unpacked here before the
+ * JSON decoder reads it; on hc5 responses pass through untouched.
+ */
+public class GzipResponseCapability implements Capability {
+
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String CONTENT_LENGTH = "Content-Length";
+
+    @Override
+    public Decoder enrich(Decoder decoder) {
+        return (response, type) -> decoder.decode(decompress(response), type);
+    }
+
+    static Response decompress(Response response) throws IOException {
+        Collection<String> encodings = response.headers().get(CONTENT_ENCODING);
+        if (response.body() == null || encodings == null || encodings.isEmpty()) {
+            return response;
+        }
+        String encoding = encodings.iterator().next().trim().toLowerCase(Locale.ROOT);
+        InputStream body = switch (encoding) {
+            case "gzip", "x-gzip" -> new GZIPInputStream(response.body().asInputStream());
+            case "deflate" -> new InflaterInputStream(response.body().asInputStream());
+            default -> null;
+        };
+        if (body == null) {
+            return response;
+        }
+        Map<String, Collection<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.putAll(response.headers());
+        headers.remove(CONTENT_ENCODING);
+        headers.remove(CONTENT_LENGTH);
+        try (body) {
+            return response.toBuilder()
+                    .headers(headers)
+                    .body(body.readAllBytes())
+                    .build();
+        }
+    }
+}
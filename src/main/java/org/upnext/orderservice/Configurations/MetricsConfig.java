@@ -0,0 +1,32 @@
+package org.upnext.orderservice.Configurations;
+
+import feign.Response;
+import feign.micrometer.FeignContext;
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.ObservationFilter;
+import org.springframework.boot.actuate.metrics.http.Outcome;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Feign calls to cart-service and product-service are timed as http.client.requests by the
+ * observation capability spring-cloud-openfeign installs when feign-micrometer is present;
+ * this adds the outcome tag the server-side and Stripe timers carry.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public ObservationFilter feignOutcomeFilter() {
+        return context -> {
+            if (context instanceof FeignContext feignContext) {
+                Response response = feignContext.getResponse();
+                KeyValue outcome = response == null
+                        ? Outcome.UNKNOWN.asKeyValue()
+                        : Outcome.forStatus(response.status()).asKeyValue();
+                context.addLowCardinalityKeyValue(outcome);
+            }
+            return context;
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package org.upnext.orderservice.Configurations;
+
+import org.springframework.amqp.core.*;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class OrderHistoryRabbitMqConfig {
+
+    public static final String EXCHANGE = "order.history.exchange";
+
+    @Bean
+    public FanoutExchange orderHistoryExchange() {
+        return new FanoutExchange(EXCHANGE);
+    }
+
+    // every instance keeps its own order-history cache, so each one needs its own queue
+    @Bean
+    public Queue orderHistoryInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding orderHistoryInvalidationBinding(Queue orderHistoryInvalidationQueue, FanoutExchange orderHistoryExchange) {
+        return BindingBuilder.bind(orderHistoryInvalidationQueue).to(orderHistoryExchange);
+    }
+}
@@ -1,13 +1,19 @@
 package org.upnext.orderservice.Configurations;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Configuration
 public class PaymentRabbitMqConfig {
 
@@ -16,6 +22,15 @@ public class PaymentRabbitMqConfig {
     public static final String FAILURE_QUEUE = "payment.failure";
     public static final String SUCCESS_ROUTING_KEY = "payment.success";
     public static final String FAILURE_ROUTING_KEY = "payment.failure";
+    public static final String BATCH_CONTAINER_FACTORY = "paymentBatchContainerFactory";
+
+    // Payment outcomes are routed by order id onto payment.events.<partition>; the outcome
+    // travels in a header so that success and failure of one order share a queue and stay ordered.
+    public static final String PARTITIONED_EXCHANGE = "payment.events";
+    public static final String PARTITION_QUEUE_PREFIX = "payment.events.";
+    public static final String OUTCOME_HEADER = "payment-outcome";
+    // epoch millis of the Stripe webhook that reported the outcome
+    public static final String OCCURRED_AT_HEADER = "payment-occurred-at";
 
     @Bean
     public TopicExchange exchange() {
@@ -32,6 +47,33 @@ public class PaymentRabbitMqConfig {
         return new Queue(FAILURE_QUEUE, true);
     }
 
+    @Bean
+    public DirectExchange paymentEventsExchange() {
+        return new DirectExchange(PARTITIONED_EXCHANGE);
+    }
+
+    // single-active-consumer: every replica subscribes to every partition, the broker lets one of them consume
+    @Bean
+    public Declarables paymentPartitionQueues(DirectExchange paymentEventsExchange,
+                                              @Value("${payment.partitions:8}") int partitions) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            Queue queue = QueueBuilder.durable(partitionQueue(partition)).singleActiveConsumer().build();
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(paymentEventsExchange).with(String.valueOf(partition)));
+        }
+        return new Declarables(declarables);
+    }
+
+    public static String partitionQueue(int partition) {
+        return PARTITION_QUEUE_PREFIX + partition;
+    }
+
+    // changing payment.partitions re-maps orders; drain the partition queues first
+    public static int partitionOf(Long orderId, int partitions) {
+        return Math.floorMod(Long.hashCode(orderId), partitions);
+    }
+
     @Bean
     public Binding successBinding(Queue successQueue, TopicExchange exchange) {
         return BindingBuilder.bind(successQueue).to(exchange).with(SUCCESS_ROUTING_KEY);
@@ -42,6 +84,26 @@ public class PaymentRabbitMqConfig {
         return BindingBuilder.bind(failureQueue).to(exchange).with(FAILURE_ROUTING_KEY);
     }
 
+    // Listeners get up to batch-size messages, or whatever arrived within receive-timeout.
+    // Acknowledgement is AUTO: the batch is acked when the listener returns, i.e. after its transaction commits.
+    @Bean(BATCH_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory paymentBatchContainerFactory(SimpleRabbitListenerContainerFactoryConfigurer configurer,
+                                                                             ConnectionFactory connectionFactory,
+                                                                             @Value("${payment.consumer.batch-size:100}") int batchSize,
+                                                                             @Value("${payment.consumer.receive-timeout-ms:200}") long receiveTimeout,
+                                                                             @Value("${payment.consumer.prefetch:100}") int prefetch) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(receiveTimeout);
+        // a consumer batch can never be larger than what the broker has delivered
+        factory.setPrefetchCount(Math.max(prefetch, batchSize));
+        factory.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        return factory;
+    }
+
     @Bean
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
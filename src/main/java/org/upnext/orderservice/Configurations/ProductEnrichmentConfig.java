@@ -0,0 +1,37 @@
+package org.upnext.orderservice.Configurations;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Executor for the concurrent product-service lookups. With spring.threads.virtual.enabled
+ * each lookup gets its own virtual thread and parallelism only caps how many are in flight;
+ * otherwise a fixed pool of platform threads of the same size is used.
+ */
+@Configuration
+public class ProductEnrichmentConfig {
+
+    @Bean
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public SimpleAsyncTaskExecutor productEnrichmentExecutor(@Value("${product.enrichment.parallelism:8}") int parallelism) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("product-enrichment-");
+        executor.setVirtualThreads(true);
+        executor.setConcurrencyLimit(parallelism);
+        return executor;
+    }
+
+    @Bean(name = "productEnrichmentExecutor")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ThreadPoolTaskExecutor platformProductEnrichmentExecutor(@Value("${product.enrichment.parallelism:8}") int parallelism) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setThreadNamePrefix("product-enrichment-");
+        return executor;
+    }
+}
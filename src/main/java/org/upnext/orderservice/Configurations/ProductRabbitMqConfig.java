@@ -0,0 +1,28 @@
+package org.upnext.orderservice.Configurations;
+
+import org.springframework.amqp.core.*;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ProductRabbitMqConfig {
+
+    public static final String EXCHANGE = "product.exchange";
+    public static final String PRODUCT_CHANGED_ROUTING_KEY = "product.changed";
+
+    @Bean
+    public TopicExchange productExchange() {
+        return new TopicExchange(EXCHANGE);
+    }
+
+    // every instance keeps its own product cache, so each one needs its own queue
+    @Bean
+    public Queue productChangedQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding productChangedBinding(Queue productChangedQueue, TopicExchange productExchange) {
+        return BindingBuilder.bind(productChangedQueue).to(productExchange).with(PRODUCT_CHANGED_ROUTING_KEY);
+    }
+}
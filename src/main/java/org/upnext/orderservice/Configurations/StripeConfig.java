@@ -15,9 +15,16 @@ public class StripeConfig {
     @Value("${stripe.api.secretkey}")
     private String secretKey;
 
+    // empty in production; the load tests point it at a local stand-in for api.stripe.com
+    @Value("${stripe.api.base:}")
+    private String apiBase;
+
     @PostConstruct
     public void init() {
         Stripe.apiKey = secretKey;
+        if (!apiBase.isBlank()) {
+            Stripe.overrideApiBase(apiBase);
+        }
     }
 
 
@@ -0,0 +1,44 @@
+package org.upnext.orderservice.Configurations;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Workers for the Stripe calls taken off the request path: session creation for async
+ * checkouts and the follow-up of webhook events. Pools and queues are bounded; work that
+ * does not fit is dropped and picked up again by the owning sweeper, so a slow Stripe
+ * never pushes back on the request threads.
+ */
+@Configuration
+@Slf4j
+public class StripeWorkerConfig {
+
+    @Bean
+    public ThreadPoolTaskExecutor checkoutExecutor(@Value("${checkout.async.workers:16}") int workers,
+                                                   @Value("${checkout.async.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("checkout-");
+        executor.setRejectedExecutionHandler((task, pool) ->
+                log.warn("Checkout queue is full, leaving the order to the sweeper"));
+        return executor;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor stripeEventExecutor(@Value("${stripe.webhook.workers:8}") int workers,
+                                                      @Value("${stripe.webhook.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("stripe-event-");
+        executor.setRejectedExecutionHandler((task, pool) ->
+                log.warn("Stripe event queue is full, leaving the event to the sweeper"));
+        return executor;
+    }
+}
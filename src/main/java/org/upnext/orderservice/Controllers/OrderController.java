@@ -8,19 +8,32 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
+import org.upnext.orderservice.Dtos.CheckoutStatusResponse;
+import org.upnext.orderservice.Dtos.OrderPageResponse;
+import org.upnext.orderservice.Dtos.OrderStatisticsResponse;
+import org.upnext.orderservice.Enums.CheckoutStatus;
+import org.upnext.orderservice.Services.Implementation.IdempotencyService;
+import org.upnext.orderservice.Services.Implementation.OrderExportService;
+import org.upnext.orderservice.Services.Implementation.OrderStatisticsService;
 import org.upnext.orderservice.Services.OrderService;
 import org.upnext.sharedlibrary.Dtos.*;
+import org.upnext.sharedlibrary.Enums.OrderStatus;
 import org.upnext.sharedlibrary.Errors.Result;
 
+import java.io.IOException;
 import java.net.URI;
-import java.util.List;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @RestController
 @RequestMapping("/orders")
@@ -29,26 +42,87 @@ import java.util.List;
 )
 public class OrderController {
 
+    private static final String NDJSON = "application/x-ndjson";
+
     private final OrderService orderService;
+    private final OrderExportService orderExportService;
+    private final IdempotencyService idempotencyService;
+    private final OrderStatisticsService orderStatisticsService;
 
-    public OrderController(OrderService orderService) {
+    public OrderController(OrderService orderService, OrderExportService orderExportService, IdempotencyService idempotencyService,
+                           OrderStatisticsService orderStatisticsService) {
         this.orderService = orderService;
+        this.orderExportService = orderExportService;
+        this.idempotencyService = idempotencyService;
+        this.orderStatisticsService = orderStatisticsService;
     }
 
 
     @Operation(
             summary = "Get all orders (Admin only)",
-            description = "Returns a list of all orders in the system. Accessible only by users with the ADMIN role."
+            description = "Returns one page of all orders in the system, newest first. Pass the returned nextCursor to fetch the following page. Accessible only by users with the ADMIN role."
     )
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved orders", content = @Content(schema = @Schema(implementation = OrderDto.class))),
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved orders", content = @Content(schema = @Schema(implementation = OrderPageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid page cursor"),
             @ApiResponse(responseCode = "403", description = "Access denied"),
     })
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping
-    public ResponseEntity<?> getOrders(HttpServletRequest request, @AuthenticationPrincipal UserDto user) {
+    public ResponseEntity<?> getOrders(HttpServletRequest request, @AuthenticationPrincipal UserDto user,
+                                       @Parameter(description = "Cursor returned by the previous page") @RequestParam(required = false) String cursor,
+                                       @Parameter(description = "Page size", example = "20") @RequestParam(required = false) Integer size) {
+
+        Result<OrderPageResponse> result = orderService.getAllOrders(cursor, size);
+        if (result.isSuccess()) {
+            return ResponseEntity.ok(result.getValue());
+        }
+        return ResponseEntity.status(result.getError().getStatusCode())
+                .body(result.getError().getMessage());
+    }
+
+    @Operation(
+            summary = "Export orders as NDJSON (Admin only)",
+            description = "Streams every matching order as one JSON object per line. Optional filters: order date range [from, to) and order status. Accessible only by admins."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Orders streamed successfully"),
+            @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping(value = "/export", produces = NDJSON)
+    public void exportOrders(
+            @Parameter(description = "Inclusive lower bound of the order date", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "Exclusive upper bound of the order date", example = "2025-02-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) OrderStatus status,
+            HttpServletResponse response) throws IOException {
+
+        response.setContentType(NDJSON);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders.ndjson\"");
+        orderExportService.exportNdjson(response.getOutputStream(), from, to, status);
+    }
 
-        Result<List<OrderDto>> result = orderService.getAllOrders();
+    @Operation(
+            summary = "Get order statistics (Admin only)",
+            description = "Order counts and amounts per day, order status, payment status and payment method for placement days in [from, to). " +
+                    "Revenue is the amount of the paid orders. Defaults to the last 30 days. Accessible only by admins."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully", content = @Content(schema = @Schema(implementation = OrderStatisticsResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid date range"),
+            @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/statistics")
+    public ResponseEntity<?> getStatistics(
+            @Parameter(description = "First placement day included", example = "2025-01-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "First placement day excluded", example = "2025-02-01")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+
+        Result<OrderStatisticsResponse> result = orderStatisticsService.getStatistics(from, to);
         if (result.isSuccess()) {
             return ResponseEntity.ok(result.getValue());
         }
@@ -56,6 +130,21 @@ public class OrderController {
                 .body(result.getError().getMessage());
     }
 
+    @Operation(
+            summary = "Rebuild order statistics (Admin only)",
+            description = "Recomputes every statistics counter from the orders table. Runs nightly on its own; use after a manual data fix. Accessible only by admins."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "204", description = "Statistics rebuilt"),
+            @ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/statistics/rebuild")
+    public ResponseEntity<?> rebuildStatistics() {
+        orderStatisticsService.rebuild();
+        return ResponseEntity.noContent().build();
+    }
+
     @Operation(
             summary = "Get order by ID",
             description = "Retrieve a specific order by its ID. Admins can access any order, while users can only access their own."
@@ -79,17 +168,20 @@ public class OrderController {
 
     @Operation(
             summary = "Get current user's orders",
-            description = "Retrieve all orders placed by the authenticated user."
+            description = "Retrieve one page of the orders placed by the authenticated user, newest first."
     )
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Orders retrieved successfully", content = @Content(schema = @Schema(implementation = OrderDto.class))),
+            @ApiResponse(responseCode = "200", description = "Orders retrieved successfully", content = @Content(schema = @Schema(implementation = OrderPageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid page cursor"),
             @ApiResponse(responseCode = "401", description = "User not authenticated")
     })
     @PreAuthorize("isAuthenticated()")
     @GetMapping("/me")
-    public ResponseEntity<?> getUserOrders(@AuthenticationPrincipal UserDto user) {
+    public ResponseEntity<?> getUserOrders(@AuthenticationPrincipal UserDto user,
+                                           @Parameter(description = "Cursor returned by the previous page") @RequestParam(required = false) String cursor,
+                                           @Parameter(description = "Page size", example = "20") @RequestParam(required = false) Integer size) {
 
-        Result<List<OrderDto>> result = orderService.getUserOrders(user.getId());
+        Result<OrderPageResponse> result = orderService.getUserOrders(user.getId(), cursor, size);
 
         if (result.isSuccess()) {
             return ResponseEntity.ok(result.getValue());
@@ -101,16 +193,19 @@ public class OrderController {
 
     @Operation(
             summary = "Get all orders for a specific user (Admin only)",
-            description = "Retrieve all orders made by a specific user, identified by userId. Accessible only by admins."
+            description = "Retrieve one page of the orders made by a specific user, identified by userId, newest first. Accessible only by admins."
     )
     @ApiResponses({
-            @ApiResponse(responseCode = "200", description = "Orders retrieved successfully", content = @Content(schema = @Schema(implementation = OrderDto.class))),
+            @ApiResponse(responseCode = "200", description = "Orders retrieved successfully", content = @Content(schema = @Schema(implementation = OrderPageResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid page cursor"),
             @ApiResponse(responseCode = "403", description = "Access denied")
     })
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/user/{userId}")
-    public ResponseEntity<?> getUserOrders(@AuthenticationPrincipal UserDto user, @PathVariable Long userId) {
-        Result<List<OrderDto>> result = orderService.getUserOrders(userId);
+    public ResponseEntity<?> getUserOrders(@AuthenticationPrincipal UserDto user, @PathVariable Long userId,
+                                           @Parameter(description = "Cursor returned by the previous page") @RequestParam(required = false) String cursor,
+                                           @Parameter(description = "Page size", example = "20") @RequestParam(required = false) Integer size) {
+        Result<OrderPageResponse> result = orderService.getUserOrders(userId, cursor, size);
         if (result.isSuccess()) {
             return ResponseEntity.ok(result.getValue());
         }
@@ -120,19 +215,45 @@ public class OrderController {
 
     @Operation(
             summary = "Prepare a new order for payment",
-            description = "Creates a new order based on the user's cart and generates a Stripe payment session URL."
+            description = "Creates a new order based on the user's cart and generates a Stripe payment session URL. " +
+                    "With async=true the order is accepted right away and the payment session is created in the background; " +
+                    "poll the checkout status endpoint for the URL."
     )
     @ApiResponses({
             @ApiResponse(responseCode = "201", description = "Order prepared successfully", content = @Content(schema = @Schema(implementation = OrderPaymentResponse.class))),
+            @ApiResponse(responseCode = "202", description = "Order accepted, payment session pending", content = @Content(schema = @Schema(implementation = CheckoutStatusResponse.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input or empty cart"),
-            @ApiResponse(responseCode = "401", description = "Unauthorized")
+            @ApiResponse(responseCode = "401", description = "Unauthorized"),
+            @ApiResponse(responseCode = "409", description = "A request with the same idempotency key is still running"),
+            @ApiResponse(responseCode = "422", description = "Idempotency key reused for a different request")
     })
     @PreAuthorize("isAuthenticated()")
     @PostMapping("/me/prepare")
     public ResponseEntity<?> createOrder(
             @Valid @RequestBody OrderPaymentRequest orderPaymentRequest,
             @AuthenticationPrincipal UserDto user,
+            @Parameter(description = "Return before the payment session exists") @RequestParam(defaultValue = "false") boolean async,
+            @Parameter(description = "Client-chosen key; retries with the same key get the first response instead of a new order")
+            @RequestHeader(name = IdempotencyService.HEADER, required = false) String idempotencyKey,
             UriComponentsBuilder urb) throws Exception {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return prepareOrder(orderPaymentRequest, user, async, urb);
+        }
+        return idempotencyService.execute(user.getId(), idempotencyKey, async ? "prepare-async" : "prepare", orderPaymentRequest,
+                () -> prepareOrder(orderPaymentRequest, user, async, urb));
+    }
+
+    private ResponseEntity<?> prepareOrder(OrderPaymentRequest orderPaymentRequest, UserDto user, boolean async,
+                                           UriComponentsBuilder urb) throws Exception {
+        if (async) {
+            Result<CheckoutStatusResponse> checkout = orderService.placeOrderAsync(user, orderPaymentRequest, urb);
+            if (checkout.isSuccess()) {
+                URI statusUri = urb.path("/orders/{id}/checkout").buildAndExpand(checkout.getValue().getOrderId()).toUri();
+                return ResponseEntity.accepted().location(statusUri).body(checkout.getValue());
+            }
+            return ResponseEntity.status(checkout.getError().getStatusCode())
+                    .body(checkout.getError().getMessage());
+        }
         Result<OrderPaymentResponse> order = orderService.placeOrder(user, orderPaymentRequest, urb);
         if (order.isSuccess()) {
             return ResponseEntity.status(HttpStatus.CREATED).body(order.getValue());
@@ -141,6 +262,31 @@ public class OrderController {
                 .body(order.getError().getMessage());
     }
 
+    @Operation(
+            summary = "Get checkout status",
+            description = "Returns the checkout state of the user's order: PROCESSING while the payment session is being created, READY with the Stripe URL, or FAILED."
+    )
+    @ApiResponses({
+            @ApiResponse(responseCode = "200", description = "Checkout status", content = @Content(schema = @Schema(implementation = CheckoutStatusResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Order not found"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized")
+    })
+    @PreAuthorize("isAuthenticated()")
+    @GetMapping("/{id}/checkout")
+    public ResponseEntity<?> getCheckoutStatus(@AuthenticationPrincipal UserDto user, @PathVariable Long id) {
+
+        Result<CheckoutStatusResponse> result = orderService.getCheckoutStatus(user, id);
+        if (result.isSuccess()) {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (result.getValue().getStatus() == CheckoutStatus.PROCESSING) {
+                response.header(HttpHeaders.RETRY_AFTER, "1");
+            }
+            return response.body(result.getValue());
+        }
+        return ResponseEntity.status(result.getError().getStatusCode())
+                .body(result.getError().getMessage());
+    }
+
     @Operation(
             summary = "Update order status (Admin only)",
             description = "Allows an admin to update the order status or payment status of a specific order."
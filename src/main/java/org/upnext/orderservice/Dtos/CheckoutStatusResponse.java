@@ -0,0 +1,18 @@
+package org.upnext.orderservice.Dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.upnext.orderservice.Enums.CheckoutStatus;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CheckoutStatusResponse {
+    private Long orderId;
+    // null for orders placed before checkout status was tracked
+    private CheckoutStatus status;
+    // Stripe checkout page, set once status is READY
+    private String url;
+    private Double amount;
+}
@@ -0,0 +1,18 @@
+package org.upnext.orderservice.Dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.upnext.sharedlibrary.Dtos.OrderDto;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderPageResponse {
+    private List<OrderDto> orders;
+    // pass back as ?cursor= to get the next page, null on the last page
+    private String nextCursor;
+    private boolean hasNext;
+}
@@ -0,0 +1,47 @@
+package org.upnext.orderservice.Dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.upnext.sharedlibrary.Enums.OrderStatus;
+import org.upnext.sharedlibrary.Enums.PaymentMethod;
+import org.upnext.sharedlibrary.Enums.PaymentStatus;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderStatisticsResponse {
+    private LocalDate from;
+    // exclusive
+    private LocalDate to;
+    private long orders;
+    // amount of the paid orders
+    private Double revenue;
+    private Map<OrderStatus, Totals> byStatus;
+    private Map<PaymentStatus, Totals> byPaymentStatus;
+    private Map<PaymentMethod, Totals> byPaymentMethod;
+    // days without orders are left out
+    private List<Day> daily;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Totals {
+        private long orders;
+        private Double amount;
+    }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Day {
+        private LocalDate day;
+        private long orders;
+        private Double amount;
+        private Double revenue;
+    }
+}
@@ -0,0 +1,13 @@
+package org.upnext.orderservice.Dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockReservationItem {
+    private Long productId;
+    private Integer quantity;
+}
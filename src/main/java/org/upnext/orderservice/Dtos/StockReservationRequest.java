@@ -0,0 +1,16 @@
+package org.upnext.orderservice.Dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StockReservationRequest {
+    // generated by order-service, so a retried reservation is recognised by product-service
+    private String reservationId;
+    private List<StockReservationItem> items;
+}
@@ -0,0 +1,7 @@
+package org.upnext.orderservice.Enums;
+
+public enum CheckoutStatus {
+    PROCESSING,
+    READY,
+    FAILED
+}
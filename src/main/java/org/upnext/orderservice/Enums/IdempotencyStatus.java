@@ -0,0 +1,6 @@
+package org.upnext.orderservice.Enums;
+
+public enum IdempotencyStatus {
+    IN_PROGRESS,
+    COMPLETED
+}
@@ -0,0 +1,7 @@
+package org.upnext.orderservice.Enums;
+
+public enum OutboxEventStatus {
+    PENDING,
+    SENT,
+    FAILED
+}
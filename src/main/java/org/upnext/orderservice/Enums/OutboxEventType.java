@@ -0,0 +1,22 @@
+package org.upnext.orderservice.Enums;
+
+public enum OutboxEventType {
+    STOCK_RESERVE(false),
+    STOCK_RELEASE(false),
+    CART_CLEAR(false),
+    CHECKOUT_EXPIRE(false),
+    PAYMENT_REFUND(false),
+    PAYMENT_SUCCESS(true),
+    PAYMENT_FAILURE(true);
+
+    // true when the event is published to RabbitMQ rather than sent over HTTP
+    private final boolean message;
+
+    OutboxEventType(boolean message) {
+        this.message = message;
+    }
+
+    public boolean isMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,8 @@
+package org.upnext.orderservice.Enums;
+
+public enum StripeWebhookEventStatus {
+    RECEIVED,
+    PROCESSED,
+    // the order could not be looked up at Stripe; needs a manual review
+    FAILED
+}
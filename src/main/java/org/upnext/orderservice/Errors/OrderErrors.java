@@ -5,4 +5,6 @@ public class OrderErrors {
     public static final Error OrderNotFound = new Error("Order.NotFound", "Order Not Found", 404);
     public static final Error ProductStockInSufficient = new Error("Product.LowStock", "Product Stock In Sufficient", 400);
     public static final Error EmptyCart = new Error("EmptyCart", "Empty Cart", 400);
+    public static final Error InvalidCursor = new Error("Order.InvalidCursor", "Invalid Page Cursor", 400);
+    public static final Error InvalidDateRange = new Error("Order.InvalidDateRange", "Invalid Date Range", 400);
 }
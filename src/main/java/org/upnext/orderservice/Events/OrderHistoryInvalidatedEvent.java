@@ -0,0 +1,17 @@
+package org.upnext.orderservice.Events;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Data
+@NoArgsConstructor
+public class OrderHistoryInvalidatedEvent {
+    List<Long> userIds;
+    List<Long> orderIds;
+    // instance that published it; that one has already evicted
+    String origin;
+    Long publishedAt;
+}
@@ -0,0 +1,11 @@
+package org.upnext.orderservice.Events;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@AllArgsConstructor
+@Data
+@NoArgsConstructor
+public class ProductChangedEvent {
+    Long productId;
+}
@@ -0,0 +1,7 @@
+package org.upnext.orderservice.Exceptions;
+
+public class IdempotencyKeyInProgressException extends RuntimeException {
+    public IdempotencyKeyInProgressException(String message) {
+        super(message);
+    }
+}
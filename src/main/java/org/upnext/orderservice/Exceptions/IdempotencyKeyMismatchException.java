@@ -0,0 +1,7 @@
+package org.upnext.orderservice.Exceptions;
+
+public class IdempotencyKeyMismatchException extends RuntimeException {
+    public IdempotencyKeyMismatchException(String message) {
+        super(message);
+    }
+}
@@ -1,64 +1,44 @@
 package org.upnext.orderservice.Jwt;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
-import org.upnext.sharedlibrary.Dtos.UserDto;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
-import java.util.Collection;
-import java.util.Enumeration;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class JwtAuthFilter extends OncePerRequestFilter {
-    Logger logger = LoggerFactory.getLogger(JwtAuthFilter.class);
+
+    private static final WebAuthenticationDetailsSource DETAILS_SOURCE = new WebAuthenticationDetailsSource();
 
     private final JwtUtils jwtUtils;
-    private final ObjectMapper objectMapper;
+    private final UserHeaderAuthenticator userHeaderAuthenticator;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
-        // logger.info("doFilterInternal Started");
-        Enumeration<String> headerNames = request.getHeaderNames();
-
         String token = jwtUtils.getJwtFromHeader(request);
         if (token != null) {
-
-            String decoded = new String(Base64.getDecoder().decode(token), StandardCharsets.UTF_8);
-            UserDto user =  objectMapper.readValue(decoded, UserDto.class);
-
-            Collection<? extends GrantedAuthority> authorities = user.getRole().stream()
-                    .map(r -> new SimpleGrantedAuthority("ROLE_" + r))
-                    .toList();
-            System.out.println(user);
-            UsernamePasswordAuthenticationToken authenticationToken =
-                    new UsernamePasswordAuthenticationToken(user, null, authorities);
-            //user.getAuthorities().stream().forEach(item -> System.out.println(item.getAuthority()));
-            //logger.info("User Roles {}", user.getAuthorities());
-            authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+            UserHeaderAuthenticator.UserAuthentication authentication = userHeaderAuthenticator.authenticate(token);
+            if (authentication == null) {
+                log.debug("Ignoring unreadable X-User header on {}", request.getRequestURI());
+            } else {
+                UsernamePasswordAuthenticationToken authenticationToken =
+                        new UsernamePasswordAuthenticationToken(authentication.user(), null, authentication.authorities());
+                authenticationToken.setDetails(DETAILS_SOURCE.buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+            }
         }
 
         filterChain.doFilter(request, response);
     }
-
-
-}
\ No newline at end of file
+}
@@ -2,14 +2,17 @@ package org.upnext.orderservice.Jwt;
 
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.upnext.orderservice.Utils.ForwardedUserContext;
 import org.upnext.sharedlibrary.Dtos.UserDto;
 
 import javax.crypto.SecretKey;
@@ -23,6 +26,18 @@ public class JwtUtils {
     @Value("${jwt.secret.key}")
     private String secretKey;
 
+    // both are immutable and thread-safe, so they are built once instead of per token
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
     public UserDto getUserFromToken(String token) {
         UserDto user = new UserDto();
         Claims claims = extractAllClaims(token);
@@ -44,10 +59,7 @@ public class JwtUtils {
     }
 
     private  Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token).getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     private boolean isTokenExpired(String token) {
@@ -60,11 +72,11 @@ public class JwtUtils {
     }
 
     public SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secretKey.getBytes(StandardCharsets.UTF_8));
+        return signingKey;
     }
 
     public String getJwtFromHeader(HttpServletRequest request) {
-        return request.getHeader("X-User");
+        return request.getHeader(ForwardedUserContext.HEADER);
     }
     public boolean isValidToken(String token) {
         extractAllClaims(token);
@@ -0,0 +1,80 @@
+package org.upnext.orderservice.Jwt;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.upnext.sharedlibrary.Dtos.UserDto;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Turns the gateway's X-User header (Base64 JSON of a UserDto) into the user and its
+ * authorities. A user sends the same header on every request, so results are cached by
+ * the header's SHA-256 digest and a repeat request costs one hash and one lookup.
+ * Cached users are shared between requests and must not be modified.
+ */
+@Component
+public class UserHeaderAuthenticator {
+
+    public record UserAuthentication(UserDto user, List<GrantedAuthority> authorities) {
+    }
+
+    private final ObjectReader userReader;
+    private final Cache<ByteBuffer, UserAuthentication> authentications;
+
+    public UserHeaderAuthenticator(ObjectMapper objectMapper,
+                                   @Value("${auth.user-cache.maximum-size:10000}") long maximumSize,
+                                   @Value("${auth.user-cache.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.userReader = objectMapper.readerFor(UserDto.class);
+        this.authentications = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    // null when the header is not a readable user
+    public UserAuthentication authenticate(String header) {
+        ByteBuffer digest = ByteBuffer.wrap(sha256(header));
+        UserAuthentication cached = authentications.getIfPresent(digest);
+        if (cached != null) {
+            return cached;
+        }
+        UserAuthentication authentication = decode(header);
+        if (authentication != null) {
+            authentications.put(digest, authentication);
+        }
+        return authentication;
+    }
+
+    private UserAuthentication decode(String header) {
+        try {
+            UserDto user = userReader.readValue(Base64.getDecoder().decode(header));
+            List<GrantedAuthority> authorities = user.getRole() == null ? List.of() : user.getRole().stream()
+                    .<GrantedAuthority>map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                    .toList();
+            return new UserAuthentication(user, authorities);
+        } catch (IllegalArgumentException | IOException e) {
+            return null;
+        }
+    }
+
+    private static byte[] sha256(String header) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(header.getBytes(StandardCharsets.ISO_8859_1));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
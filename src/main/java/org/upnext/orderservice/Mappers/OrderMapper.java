@@ -1,6 +1,8 @@
 package org.upnext.orderservice.Mappers;
 
 import org.mapstruct.*;
+import org.upnext.orderservice.Dtos.StockReservationItem;
+import org.upnext.orderservice.Dtos.StockReservationRequest;
 import org.upnext.orderservice.Models.Order;
 import org.upnext.orderservice.Models.OrderItem;
 import org.upnext.sharedlibrary.Dtos.*;
@@ -53,6 +55,13 @@ public interface OrderMapper {
         }
     }
 
+    // the whole order is reserved and released in one call, keyed by the order's reservation id
+    default StockReservationRequest toStockReservation(Order order) {
+        return new StockReservationRequest(order.getStockReservationId(), order.getItems().stream()
+                .map(item -> new StockReservationItem(item.getProductId(), item.getQuantity()))
+                .toList());
+    }
+
     // Order to OrderPaymentDto
 
 
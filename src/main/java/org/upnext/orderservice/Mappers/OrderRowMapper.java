@@ -0,0 +1,79 @@
+package org.upnext.orderservice.Mappers;
+
+import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.Models.OrderItem;
+import org.upnext.orderservice.Repositories.Projections.OrderItemRow;
+
+import java.util.*;
+
+/**
+ * Folds order/item rows into detached {@link Order}s for the read paths.
+ * The result is never attached to a persistence context, so there is no dirty checking
+ * and nothing can be lazily loaded behind the caller's back.
+ */
+public final class OrderRowMapper {
+
+    private OrderRowMapper() {
+    }
+
+    public static List<Order> toOrders(List<OrderItemRow> rows) {
+        Map<Long, Order> orders = new LinkedHashMap<>();
+        rows.forEach(row -> addItem(orders.computeIfAbsent(row.orderId(), id -> toOrder(row)), row));
+        return new ArrayList<>(orders.values());
+    }
+
+    // rows must arrive grouped by order id; an order is emitted once its last row has been read
+    public static Iterator<Order> toOrders(Iterator<OrderItemRow> rows) {
+        return new Iterator<>() {
+            private OrderItemRow pending = rows.hasNext() ? rows.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return pending != null;
+            }
+
+            @Override
+            public Order next() {
+                if (pending == null) {
+                    throw new NoSuchElementException();
+                }
+                Order order = toOrder(pending);
+                do {
+                    addItem(order, pending);
+                    pending = rows.hasNext() ? rows.next() : null;
+                } while (pending != null && pending.orderId().equals(order.getId()));
+                return order;
+            }
+        };
+    }
+
+    private static Order toOrder(OrderItemRow row) {
+        Order order = new Order();
+        order.setId(row.orderId());
+        order.setUserId(row.userId());
+        order.setOrderDate(row.orderDate());
+        order.setDeliveryDate(row.deliveryDate());
+        order.setOrderStatus(row.orderStatus());
+        order.setPaymentStatus(row.paymentStatus());
+        order.setPaymentMethod(row.paymentMethod());
+        order.setPaymentTransactionId(row.paymentTransactionId());
+        order.setSubtotalCents(row.subtotalCents());
+        order.setTotalCents(row.totalCents());
+        order.setItems(new ArrayList<>());
+        return order;
+    }
+
+    private static void addItem(Order order, OrderItemRow row) {
+        if (row.itemId() == null) {
+            return;
+        }
+        OrderItem item = new OrderItem();
+        item.setId(row.itemId());
+        item.setProductId(row.productId());
+        item.setQuantity(row.quantity());
+        item.setPrice(row.price());
+        item.setUnitPriceCents(row.unitPriceCents());
+        item.setLineTotalCents(row.lineTotalCents());
+        order.getItems().add(item);
+    }
+}
@@ -4,6 +4,11 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import lombok.Data;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.upnext.orderservice.Enums.CheckoutStatus;
+import org.upnext.orderservice.Utils.Money;
 import org.upnext.sharedlibrary.Enums.OrderStatus;
 import org.upnext.sharedlibrary.Enums.PaymentMethod;
 import org.upnext.sharedlibrary.Enums.PaymentStatus;
@@ -11,14 +16,25 @@ import org.upnext.sharedlibrary.Enums.PaymentStatus;
 import java.time.LocalDateTime;
 import java.util.List;
 
+// Cached by id. A bulk JPQL update evicts the whole region and a native one every region
+// unless it names its tables, so the order write paths update managed entities instead.
+// Another replica's cache is not told about a write, so updates are versioned: a change made
+// to a stale cached copy fails instead of overwriting the newer row.
 @Entity
 @Data
 @Table(name ="orders")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Order {
+    // pooled sequence: ids are handed out without an insert, so the order and its items can be batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @NotNull
     @Positive
     @Column(nullable = false)
@@ -47,17 +63,54 @@ public class Order {
     @Column(name = "payment_transaction_id", unique = true)
     private String paymentTransactionId;
 
+    // null for orders placed before reservations, whose stock was decremented item by item
+    @Column(name = "stock_reservation_id", length = 64)
+    private String stockReservationId;
+
+    // PROCESSING while an async checkout waits for its Stripe session
+    @Enumerated(EnumType.STRING)
+    @Column(name = "checkout_status", length = 16)
+    private CheckoutStatus checkoutStatus;
+
+    @Column(name = "checkout_url", length = 2048)
+    private String checkoutUrl;
+
+    // sum of the item line totals; total equals subtotal until there are shipping or discount lines
+    @Column(name = "subtotal_cents")
+    private Long subtotalCents;
+
+    @Column(name = "total_cents")
+    private Long totalCents;
+
+    // collections missing from the cache are loaded for up to 50 orders of the session at once
     @OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @BatchSize(size = 50)
     List<OrderItem> items;
 
     @PrePersist
     public void onCreate() {
         orderDate = LocalDateTime.now();
         deliveryDate = LocalDateTime.now().plusDays(3);
+        computeTotals();
+    }
+
+    public void computeTotals() {
+        long subtotal = 0;
+        if (items != null) {
+            for (OrderItem item : items) {
+                item.computeTotals();
+                subtotal = Math.addExact(subtotal, item.getLineTotalCents());
+            }
+        }
+        subtotalCents = subtotal;
+        totalCents = subtotal;
     }
 
+    // stored total; only orders the backfill has not reached yet fall back to the items
     @Transient
     public Double getTotalCost() {
+        if (totalCents != null) return Money.fromCents(totalCents);
         if (items == null) return 0.0;
         return items.stream()
                 .mapToDouble(item -> item.getPrice() * item.getQuantity())
@@ -0,0 +1,57 @@
+package org.upnext.orderservice.Models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.upnext.sharedlibrary.Enums.OrderStatus;
+import org.upnext.sharedlibrary.Enums.PaymentMethod;
+import org.upnext.sharedlibrary.Enums.PaymentStatus;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+// one shard of the counters of a placement day and status combination; a single shard can go negative, their sum cannot
+@Entity
+@Data
+@Table(name = "order_daily_stats")
+@IdClass(OrderDailyStat.Key.class)
+public class OrderDailyStat {
+    @Id
+    private LocalDate day;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private OrderStatus orderStatus;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private PaymentStatus paymentStatus;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 32)
+    private PaymentMethod paymentMethod;
+
+    @Id
+    private Short shard;
+
+    @Column(nullable = false)
+    private Long orderCount;
+
+    @Column(nullable = false)
+    private Long amountCents;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private OrderStatus orderStatus;
+        private PaymentStatus paymentStatus;
+        private PaymentMethod paymentMethod;
+        private Short shard;
+    }
+}
@@ -3,13 +3,18 @@ package org.upnext.orderservice.Models;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Positive;
 import lombok.Data;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.upnext.orderservice.Utils.Money;
 
 @Entity
 @Table(name = "orderitems")
 @Data
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class OrderItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orderitems_seq")
+    @SequenceGenerator(name = "orderitems_seq", sequenceName = "orderitems_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(optional = false)
@@ -28,4 +33,15 @@ public class OrderItem {
     @Positive(message = "Price must be positive")
     private Double price;
 
+    // price and price * quantity, rounded once when the order is placed
+    @Column(name = "unit_price_cents")
+    private Long unitPriceCents;
+
+    @Column(name = "line_total_cents")
+    private Long lineTotalCents;
+
+    public void computeTotals() {
+        unitPriceCents = Money.toCents(price);
+        lineTotalCents = Math.multiplyExact(unitPriceCents, quantity.longValue());
+    }
 }
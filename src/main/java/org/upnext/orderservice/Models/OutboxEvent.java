@@ -0,0 +1,58 @@
+package org.upnext.orderservice.Models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.upnext.orderservice.Enums.OutboxEventStatus;
+import org.upnext.orderservice.Enums.OutboxEventType;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@Table(name = "outbox_events")
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private OutboxEventType type;
+
+    // order id; events of one aggregate are relayed strictly in id order
+    private Long aggregateId;
+
+    @Column(columnDefinition = "text")
+    private String payload;
+
+    // X-User of the request that produced the event, forwarded on HTTP deliveries
+    @Column(columnDefinition = "text")
+    private String userHeader;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private OutboxEventStatus status = OutboxEventStatus.PENDING;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime sentAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @PrePersist
+    public void onCreate() {
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
+        nextAttemptAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,41 @@
+package org.upnext.orderservice.Models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.upnext.orderservice.Enums.StripeWebhookEventStatus;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Data
+@Table(name = "stripe_events")
+public class StripeWebhookEvent {
+    // Stripe's evt_... id
+    @Id
+    private String eventId;
+
+    @Column(nullable = false, length = 100)
+    private String type;
+
+    // the verified request body, exactly as Stripe sent it
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private StripeWebhookEventStatus status;
+
+    @Column(nullable = false)
+    private LocalDateTime receivedAt;
+
+    private LocalDateTime processedAt;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    // null until a lookup fails; the sweeper leaves the event alone before then
+    private LocalDateTime nextAttemptAt;
+
+    @Column(length = 1000)
+    private String lastError;
+}
@@ -0,0 +1,38 @@
+package org.upnext.orderservice.Repositories;
+
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.upnext.orderservice.Models.IdempotencyRecord;
+
+import java.time.LocalDateTime;
+
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, IdempotencyRecord.Key> {
+
+    // 1 when this caller now owns the key, 0 when someone else recorded it first
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "idempotency_keys"))
+    @Query(value = "insert into idempotency_keys (user_id, key_hash, request_hash, status, created_at) " +
+            "values (:userId, :keyHash, :requestHash, 'IN_PROGRESS', now()) on conflict do nothing", nativeQuery = true)
+    int claim(Long userId, String keyHash, String requestHash);
+
+    // takes over a claim whose owner stopped before recording a response
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "idempotency_keys"))
+    @Query(value = "update idempotency_keys set created_at = now() " +
+            "where user_id = :userId and key_hash = :keyHash and status = 'IN_PROGRESS' and created_at < :staleBefore", nativeQuery = true)
+    int reclaim(Long userId, String keyHash, LocalDateTime staleBefore);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.userId = :userId and r.keyHash = :keyHash " +
+            "and r.status = org.upnext.orderservice.Enums.IdempotencyStatus.IN_PROGRESS")
+    int release(Long userId, String keyHash);
+
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.createdAt < :before")
+    int deleteCreatedBefore(LocalDateTime before);
+}
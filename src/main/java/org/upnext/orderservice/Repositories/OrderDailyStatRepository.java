@@ -0,0 +1,62 @@
+package org.upnext.orderservice.Repositories;
+
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.upnext.orderservice.Models.OrderDailyStat;
+import org.upnext.orderservice.Repositories.Projections.OrderStatsRow;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
+public interface OrderDailyStatRepository extends JpaRepository<OrderDailyStat, OrderDailyStat.Key> {
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "order_daily_stats"))
+    @Query(value = "insert into order_daily_stats " +
+            "(day, order_status, payment_status, payment_method, shard, order_count, amount_cents) " +
+            "values (:day, :orderStatus, :paymentStatus, :paymentMethod, :shard, :orderCount, :amountCents) " +
+            "on conflict (day, order_status, payment_status, payment_method, shard) do update set " +
+            "order_count = order_daily_stats.order_count + excluded.order_count, " +
+            "amount_cents = order_daily_stats.amount_cents + excluded.amount_cents", nativeQuery = true)
+    int add(LocalDate day, String orderStatus, String paymentStatus, String paymentMethod, short shard,
+            long orderCount, long amountCents);
+
+    // bounded by days x status combinations x shards, whatever the number of orders behind them
+    @Query("select new org.upnext.orderservice.Repositories.Projections.OrderStatsRow(" +
+            "s.day, s.orderStatus, s.paymentStatus, s.paymentMethod, sum(s.orderCount), sum(s.amountCents)) " +
+            "from OrderDailyStat s where s.day >= :from and s.day < :to " +
+            "group by s.day, s.orderStatus, s.paymentStatus, s.paymentMethod " +
+            "order by s.day")
+    List<OrderStatsRow> sumByDay(LocalDate from, LocalDate to);
+
+    // false while another transaction holds it; released when this one ends
+    @Query(value = "select pg_try_advisory_xact_lock(hashtext('order_daily_stats_rebuild'))", nativeQuery = true)
+    boolean tryLockScheduledRebuild();
+
+    // held until the rebuild commits: placements wait instead of adding to counters that are about to be replaced
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "order_daily_stats"))
+    @Query(value = "lock table order_daily_stats in exclusive mode", nativeQuery = true)
+    int lockForRebuild();
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "order_daily_stats"))
+    @Query(value = "delete from order_daily_stats", nativeQuery = true)
+    int deleteAllCounters();
+
+    // orders the totals backfill has not reached yet are priced the way it will price them
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "order_daily_stats"))
+    @Query(value = "insert into order_daily_stats " +
+            "(day, order_status, payment_status, payment_method, shard, order_count, amount_cents) " +
+            "select cast(o.order_date as date), o.order_status, o.payment_status, o.payment_method, 0, count(*), " +
+            "coalesce(sum(coalesce(o.total_cents, (select coalesce(sum(round(i.price::numeric * 100) * i.quantity), 0) " +
+            "from orderitems i where i.order_id = o.id))), 0) " +
+            "from orders o group by cast(o.order_date as date), o.order_status, o.payment_status, o.payment_method", nativeQuery = true)
+    int insertCountersFromOrders();
+}
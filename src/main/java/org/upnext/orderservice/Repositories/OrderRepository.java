@@ -1,10 +1,93 @@
 package org.upnext.orderservice.Repositories;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.Repositories.Projections.OrderItemRow;
+import org.upnext.sharedlibrary.Enums.OrderStatus;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    List<Order> findAllByUserId(Long userId);
+
+    String ORDER_ITEM_ROW = "select new org.upnext.orderservice.Repositories.Projections.OrderItemRow(" +
+            "o.id, o.userId, o.orderDate, o.deliveryDate, o.orderStatus, o.paymentStatus, o.paymentMethod, " +
+            "o.paymentTransactionId, o.subtotalCents, o.totalCents, " +
+            "i.id, i.productId, i.quantity, i.price, i.unitPriceCents, i.lineTotalCents) " +
+            "from Order o left join o.items i ";
+
+    // reads the row past the second-level cache and holds it until commit
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from Order o where o.id = :id")
+    Optional<Order> findForUpdateById(Long id);
+
+    // locked in id order, so two batches sharing orders wait for each other instead of deadlocking
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select o from Order o where o.id in :ids order by o.id")
+    List<Order> findAllForUpdateByIdIn(Collection<Long> ids);
+
+    // Listing is two-phase: a keyset page of ids ordered by (orderDate desc, id desc),
+    // then one join over those ids. Paging never touches the collection join.
+    @Query("select o.id from Order o order by o.orderDate desc, o.id desc")
+    Slice<Long> findPageIds(Pageable pageable);
+
+    @Query("select o.id from Order o " +
+            "where o.orderDate < :orderDate or (o.orderDate = :orderDate and o.id < :id) " +
+            "order by o.orderDate desc, o.id desc")
+    Slice<Long> findPageIdsBefore(LocalDateTime orderDate, Long id, Pageable pageable);
+
+    @Query("select o.id from Order o where o.userId = :userId order by o.orderDate desc, o.id desc")
+    Slice<Long> findPageIdsByUserId(Long userId, Pageable pageable);
+
+    @Query("select o.id from Order o " +
+            "where o.userId = :userId and (o.orderDate < :orderDate or (o.orderDate = :orderDate and o.id < :id)) " +
+            "order by o.orderDate desc, o.id desc")
+    Slice<Long> findPageIdsByUserIdBefore(Long userId, LocalDateTime orderDate, Long id, Pageable pageable);
+
+    @Query(ORDER_ITEM_ROW + "where o.id in :ids order by o.id, i.id")
+    List<OrderItemRow> findRowsByIdIn(Collection<Long> ids);
+
+    // must be consumed inside a transaction, otherwise the driver ignores the fetch size and buffers everything
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(ORDER_ITEM_ROW +
+            "where o.orderDate >= :from and o.orderDate < :to and o.orderStatus in :statuses " +
+            "order by o.id, i.id")
+    Stream<OrderItemRow> streamRowsForExport(LocalDateTime from, LocalDateTime to, Collection<OrderStatus> statuses);
+
+    // async checkouts still waiting for a session, oldest first; served by idx_orders_checkout_processing
+    @Query("select o.id from Order o where o.checkoutStatus = org.upnext.orderservice.Enums.CheckoutStatus.PROCESSING " +
+            "and o.orderDate < :before order by o.orderDate")
+    List<Long> findCheckoutIdsPlacedBefore(LocalDateTime before, Pageable pageable);
+
+    // orders placed before totals were stored; locked so concurrent backfill runs take different chunks
+    @Query(value = "select id from orders where total_cents is null order by id limit :limit for update skip locked", nativeQuery = true)
+    List<Long> lockOrdersMissingTotals(int limit);
+
+    // same rounding as Money.toCents: half up on the decimal value of the price
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "orderitems"))
+    @Query(value = "update orderitems set unit_price_cents = round(price::numeric * 100), " +
+            "line_total_cents = round(price::numeric * 100) * quantity where order_id in (:orderIds)", nativeQuery = true)
+    int backfillItemTotals(Collection<Long> orderIds);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "orders"))
+    @Query(value = "update orders o set (subtotal_cents, total_cents) = " +
+            "(select coalesce(sum(i.line_total_cents), 0), coalesce(sum(i.line_total_cents), 0) from orderitems i where i.order_id = o.id), " +
+            "version = o.version + 1 where o.id in (:orderIds)", nativeQuery = true)
+    int backfillOrderTotals(Collection<Long> orderIds);
 }
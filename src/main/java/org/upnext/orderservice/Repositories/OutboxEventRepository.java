@@ -0,0 +1,34 @@
+package org.upnext.orderservice.Repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.upnext.orderservice.Enums.OutboxEventStatus;
+import org.upnext.orderservice.Models.OutboxEvent;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Due events, at most one per aggregate: an event waits while an older one of the same
+    // order is still pending. Rows locked by another relay instance are skipped, not waited on.
+    @Query(value = "select * from outbox_events e " +
+            "where e.status = 'PENDING' and e.next_attempt_at <= now() " +
+            "and not exists (select 1 from outbox_events p " +
+            "where p.aggregate_id = e.aggregate_id and p.status = 'PENDING' and p.id < e.id) " +
+            "order by e.id limit :limit for update skip locked", nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(int limit);
+
+    Optional<OutboxEvent> findFirstByAggregateIdOrderByIdAsc(Long aggregateId);
+
+    List<OutboxEvent> findByAggregateIdAndStatus(Long aggregateId, OutboxEventStatus status);
+
+    // failed rows go after the same retention, so the X-User they carry is not kept forever
+    @Modifying
+    @Query("delete from OutboxEvent e " +
+            "where (e.status = org.upnext.orderservice.Enums.OutboxEventStatus.SENT and e.sentAt < :before) " +
+            "or (e.status = org.upnext.orderservice.Enums.OutboxEventStatus.FAILED and e.createdAt < :before)")
+    int deleteFinishedBefore(LocalDateTime before);
+}
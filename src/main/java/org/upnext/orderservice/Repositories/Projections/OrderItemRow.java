@@ -0,0 +1,30 @@
+package org.upnext.orderservice.Repositories.Projections;
+
+import org.upnext.sharedlibrary.Enums.OrderStatus;
+import org.upnext.sharedlibrary.Enums.PaymentMethod;
+import org.upnext.sharedlibrary.Enums.PaymentStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the orders/orderitems left join. Item columns are null for an order without items.
+ */
+public record OrderItemRow(
+        Long orderId,
+        Long userId,
+        LocalDateTime orderDate,
+        LocalDateTime deliveryDate,
+        OrderStatus orderStatus,
+        PaymentStatus paymentStatus,
+        PaymentMethod paymentMethod,
+        String paymentTransactionId,
+        Long subtotalCents,
+        Long totalCents,
+        Long itemId,
+        Long productId,
+        Integer quantity,
+        Double price,
+        Long unitPriceCents,
+        Long lineTotalCents
+) {
+}
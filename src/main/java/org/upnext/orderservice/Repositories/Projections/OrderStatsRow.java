@@ -0,0 +1,20 @@
+package org.upnext.orderservice.Repositories.Projections;
+
+import org.upnext.sharedlibrary.Enums.OrderStatus;
+import org.upnext.sharedlibrary.Enums.PaymentMethod;
+import org.upnext.sharedlibrary.Enums.PaymentStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Counters of one day and status combination, summed over its shards.
+ */
+public record OrderStatsRow(
+        LocalDate day,
+        OrderStatus orderStatus,
+        PaymentStatus paymentStatus,
+        PaymentMethod paymentMethod,
+        Long orderCount,
+        Long amountCents
+) {
+}
@@ -0,0 +1,43 @@
+package org.upnext.orderservice.Repositories;
+
+import org.springframework.data.domain.Pageable;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.upnext.orderservice.Models.StripeWebhookEvent;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
+public interface StripeWebhookEventRepository extends JpaRepository<StripeWebhookEvent, String> {
+
+    // 0 when the event was already recorded, i.e. this delivery is a redelivery
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "stripe_events"))
+    @Query(value = "insert into stripe_events (event_id, type, payload, status, received_at) " +
+            "values (:eventId, :type, :payload, 'RECEIVED', now()) on conflict do nothing", nativeQuery = true)
+    int record(String eventId, String type, String payload);
+
+    // received before the cut-off and not backing off after a failed lookup
+    @Query("select e.eventId from StripeWebhookEvent e " +
+            "where e.status = org.upnext.orderservice.Enums.StripeWebhookEventStatus.RECEIVED and e.receivedAt < :before " +
+            "and (e.nextAttemptAt is null or e.nextAttemptAt <= :now) " +
+            "order by e.receivedAt")
+    List<String> findDueBefore(LocalDateTime before, LocalDateTime now, Pageable pageable);
+
+    // only one worker gets to act on an event
+    @Modifying
+    @Query("update StripeWebhookEvent e set e.status = org.upnext.orderservice.Enums.StripeWebhookEventStatus.PROCESSED, " +
+            "e.processedAt = :processedAt " +
+            "where e.eventId = :eventId and e.status = org.upnext.orderservice.Enums.StripeWebhookEventStatus.RECEIVED")
+    int markProcessed(String eventId, LocalDateTime processedAt);
+
+    @Modifying
+    @Query("delete from StripeWebhookEvent e " +
+            "where e.status = org.upnext.orderservice.Enums.StripeWebhookEventStatus.PROCESSED and e.processedAt < :before")
+    int deleteProcessedBefore(LocalDateTime before);
+}
@@ -0,0 +1,159 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.RateLimitException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.checkout.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upnext.orderservice.Enums.CheckoutStatus;
+import org.upnext.orderservice.Enums.OutboxEventType;
+import org.upnext.orderservice.Events.CheckoutRequestedEvent;
+import org.upnext.orderservice.Mappers.OrderMapper;
+import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.Repositories.OrderRepository;
+import org.upnext.sharedlibrary.Enums.OrderStatus;
+import org.upnext.sharedlibrary.Enums.PaymentStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+/**
+ * Second half of an async checkout: creates the Stripe session for an order that was
+ * committed as PROCESSING and flips it to READY with the session URL. Requests are handed
+ * over after commit; the sweeper re-drives orders whose hand-over was dropped, whose worker
+ * died, or whose Stripe call failed transiently, and cancels the ones that never finish;
+ * a canceled checkout releases its stock and leaves the user's cart as it was.
+ * A session created for an order that was canceled in the meantime is expired through the
+ * outbox instead of stored.
+ */
+@Component
+@Slf4j
+public class CheckoutSessionWorker {
+
+    private final OrderRepository orderRepository;
+    private final OrderQueryService orderQueryService;
+    private final OrderMapper orderMapper;
+    private final StripePaymentService stripePaymentService;
+    private final OutboxService outboxService;
+    private final OrderHistoryCache orderHistoryCache;
+    private final OrderStatisticsService orderStatisticsService;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+
+    @Value("${checkout.async.stale-after:30s}")
+    private Duration staleAfter;
+
+    @Value("${checkout.async.timeout:15m}")
+    private Duration timeout;
+
+    @Value("${checkout.async.sweep-batch-size:100}")
+    private int sweepBatchSize;
+
+    public CheckoutSessionWorker(OrderRepository orderRepository,
+                                 OrderQueryService orderQueryService,
+                                 OrderMapper orderMapper,
+                                 StripePaymentService stripePaymentService,
+                                 OutboxService outboxService,
+                                 OrderHistoryCache orderHistoryCache,
+                                 OrderStatisticsService orderStatisticsService,
+                                 TransactionTemplate transactionTemplate,
+                                 @Qualifier("checkoutExecutor") Executor executor) {
+        this.orderRepository = orderRepository;
+        this.orderQueryService = orderQueryService;
+        this.orderMapper = orderMapper;
+        this.stripePaymentService = stripePaymentService;
+        this.outboxService = outboxService;
+        this.orderHistoryCache = orderHistoryCache;
+        this.orderStatisticsService = orderStatisticsService;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+    }
+
+    @TransactionalEventListener
+    public void onCheckoutRequested(CheckoutRequestedEvent event) {
+        executor.execute(() -> complete(event.getOrderId()));
+    }
+
+    @Scheduled(fixedDelayString = "${checkout.async.sweep-interval-ms:30000}")
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        PageRequest batch = PageRequest.of(0, sweepBatchSize);
+
+        orderRepository.findCheckoutIdsPlacedBefore(now.minus(timeout), batch)
+                .forEach(orderId -> fail(orderId, "no payment session after " + timeout));
+
+        List<Long> stale = orderRepository.findCheckoutIdsPlacedBefore(now.minus(staleAfter), batch);
+        stale.forEach(orderId -> executor.execute(() -> complete(orderId)));
+        if (!stale.isEmpty()) {
+            log.info("Re-driving {} pending checkouts", stale.size());
+        }
+    }
+
+    private void complete(Long orderId) {
+        // unlocked and possibly cached; the state is checked again under the row lock before anything is stored
+        Order order = orderQueryService.findWithItems(orderId).orElse(null);
+        if (order == null || order.getCheckoutStatus() != CheckoutStatus.PROCESSING) {
+            return;
+        }
+        try {
+            Session session = stripePaymentService.createSession(order);
+            transactionTemplate.executeWithoutResult(status -> orderRepository.findForUpdateById(orderId).ifPresent(locked -> {
+                if (locked.getCheckoutStatus() == CheckoutStatus.PROCESSING) {
+                    locked.setPaymentTransactionId(session.getId());
+                    locked.setCheckoutUrl(session.getUrl());
+                    locked.setCheckoutStatus(CheckoutStatus.READY);
+                    orderHistoryCache.evictAfterCommit(locked);
+                } else if (!session.getId().equals(locked.getPaymentTransactionId())) {
+                    // canceled or failed meanwhile: the session must not stay payable
+                    log.warn("Order {} left PROCESSING before its session {} was stored, expiring it", orderId, session.getId());
+                    outboxService.enqueueFollowUp(OutboxEventType.CHECKOUT_EXPIRE, orderId, session.getId());
+                }
+            }));
+        } catch (StripeException e) {
+            if (isRetryable(e)) {
+                log.warn("Creating the payment session for order {} failed, the sweeper will retry: {}", orderId, e.getMessage());
+                return;
+            }
+            log.error("Creating the payment session for order {} failed", orderId, e);
+            fail(orderId, e.getMessage());
+        }
+    }
+
+    private void fail(Long orderId, String reason) {
+        transactionTemplate.executeWithoutResult(status -> lockProcessing(orderId).ifPresent(order -> {
+            OrderStatisticsService.Bucket before = OrderStatisticsService.Bucket.of(order);
+            order.setCheckoutStatus(CheckoutStatus.FAILED);
+            order.setOrderStatus(OrderStatus.CANCELED);
+            order.setPaymentStatus(PaymentStatus.FAILED);
+            orderStatisticsService.recordMoved(order, before);
+            outboxService.enqueueFollowUp(OutboxEventType.STOCK_RELEASE, orderId, orderMapper.toStockReservation(order));
+            outboxService.cancelPending(OutboxEventType.CART_CLEAR, orderId, "Order canceled: " + reason);
+            orderHistoryCache.evictAfterCommit(order);
+            log.warn("Canceled order {}: {}", orderId, reason);
+        }));
+    }
+
+    // transitions out of PROCESSING happen under the row lock, so a late worker, the sweeper and
+    // cancelOrder never overwrite each other, and the entity update keeps the cached order current
+    private Optional<Order> lockProcessing(Long orderId) {
+        return orderRepository.findForUpdateById(orderId)
+                .filter(order -> order.getCheckoutStatus() == CheckoutStatus.PROCESSING);
+    }
+
+    // connection problems, throttling and Stripe-side errors; anything else is a bad request that will not improve
+    private boolean isRetryable(StripeException e) {
+        return e instanceof ApiConnectionException
+                || e instanceof RateLimitException
+                || (e.getStatusCode() != null && e.getStatusCode() >= 500);
+    }
+}
@@ -0,0 +1,235 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upnext.orderservice.Enums.IdempotencyStatus;
+import org.upnext.orderservice.Exceptions.IdempotencyKeyInProgressException;
+import org.upnext.orderservice.Exceptions.IdempotencyKeyMismatchException;
+import org.upnext.orderservice.Models.IdempotencyRecord;
+import org.upnext.orderservice.Repositories.IdempotencyRecordRepository;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a request at most once per (user, Idempotency-Key) and replays its response to retries.
+ * <p>
+ * Duplicates arriving at the same instance wait on the in-memory future of the first request.
+ * Across instances the idempotency_keys row is the lock: the first insert wins, the others
+ * poll it until the response is recorded. A claim left IN_PROGRESS by a crashed instance is
+ * taken over once it is older than {@code idempotency.lease}. Requests that end in an
+ * exception release their claim, so the client's retry runs again.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(100);
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, CompletableFuture<StoredResponse>> responses;
+
+    @Value("${idempotency.wait-timeout:30s}")
+    private Duration waitTimeout;
+
+    @Value("${idempotency.lease:2m}")
+    private Duration lease;
+
+    @Value("${idempotency.retention:24h}")
+    private Duration retention;
+
+    public IdempotencyService(IdempotencyRecordRepository idempotencyRecordRepository,
+                              TransactionTemplate transactionTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${idempotency.cache.maximum-size:10000}") long maximumSize,
+                              @Value("${idempotency.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    @FunctionalInterface
+    public interface IdempotentAction {
+        ResponseEntity<?> run() throws Exception;
+    }
+
+    public ResponseEntity<?> execute(Long userId, String key, String operation, Object request, IdempotentAction action) throws Exception {
+        String keyHash = sha256(key);
+        String requestHash = sha256(operation + ":" + toJson(request));
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> first = responses.asMap().putIfAbsent(userId + ":" + keyHash, mine);
+        if (first != null) {
+            return replay(await(first), requestHash);
+        }
+
+        try {
+            StoredResponse previous = claim(userId, keyHash, requestHash);
+            if (previous != null) {
+                mine.complete(previous);
+                return replay(previous, requestHash);
+            }
+
+            ResponseEntity<?> response;
+            try {
+                response = action.run();
+            } catch (Exception e) {
+                transactionTemplate.execute(status -> idempotencyRecordRepository.release(userId, keyHash));
+                throw e;
+            }
+            mine.complete(store(userId, keyHash, requestHash, response));
+            return response;
+        } catch (Exception e) {
+            responses.asMap().remove(userId + ":" + keyHash, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Scheduled(cron = "${idempotency.cleanup-cron:0 30 * * * *}")
+    public void deleteExpiredKeys() {
+        Integer deleted = transactionTemplate.execute(status ->
+                idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minus(retention)));
+        log.info("Deleted {} expired idempotency keys", deleted);
+    }
+
+    // null when this caller owns the key, otherwise the response recorded by whoever owned it
+    private StoredResponse claim(Long userId, String keyHash, String requestHash) throws InterruptedException {
+        long deadline = System.nanoTime() + waitTimeout.toNanos();
+        while (true) {
+            if (Integer.valueOf(1).equals(transactionTemplate.execute(status ->
+                    idempotencyRecordRepository.claim(userId, keyHash, requestHash)))) {
+                return null;
+            }
+            IdempotencyRecord record = idempotencyRecordRepository
+                    .findById(new IdempotencyRecord.Key(userId, keyHash))
+                    .orElse(null);
+            if (record != null) {
+                if (!record.getRequestHash().equals(requestHash)) {
+                    throw new IdempotencyKeyMismatchException("Idempotency key was already used for a different request");
+                }
+                if (record.getStatus() == IdempotencyStatus.COMPLETED) {
+                    return StoredResponse.of(record);
+                }
+                if (Integer.valueOf(1).equals(transactionTemplate.execute(status ->
+                        idempotencyRecordRepository.reclaim(userId, keyHash, LocalDateTime.now().minus(lease))))) {
+                    log.warn("Taking over abandoned idempotency key of user {}", userId);
+                    return null;
+                }
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IdempotencyKeyInProgressException("A request with this idempotency key is still in progress");
+            }
+            Thread.sleep(POLL_INTERVAL);
+        }
+    }
+
+    private StoredResponse await(CompletableFuture<StoredResponse> first) throws Exception {
+        try {
+            return first.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IdempotencyKeyInProgressException("A request with this idempotency key is still in progress");
+        } catch (ExecutionException e) {
+            // the first request failed; its retries see the same failure
+            if (e.getCause() instanceof Exception cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private StoredResponse store(Long userId, String keyHash, String requestHash, ResponseEntity<?> response) {
+        Object body = response.getBody();
+        boolean text = body == null || body instanceof String;
+        URI location = response.getHeaders().getLocation();
+        StoredResponse stored = new StoredResponse(
+                requestHash,
+                response.getStatusCode().value(),
+                text ? MediaType.TEXT_PLAIN_VALUE : MediaType.APPLICATION_JSON_VALUE,
+                location == null ? null : location.toString(),
+                text ? (String) body : toJson(body));
+        try {
+            transactionTemplate.executeWithoutResult(status -> idempotencyRecordRepository
+                    .findById(new IdempotencyRecord.Key(userId, keyHash))
+                    .ifPresent(record -> {
+                        record.setStatus(IdempotencyStatus.COMPLETED);
+                        record.setResponseStatus(stored.status());
+                        record.setContentType(stored.contentType());
+                        record.setLocation(stored.location());
+                        record.setResponseBody(stored.body());
+                        record.setCompletedAt(LocalDateTime.now());
+                    }));
+        } catch (RuntimeException e) {
+            // the order exists; this instance still replays from memory, other instances see IN_PROGRESS
+            log.error("Could not record the response for an idempotency key of user {}", userId, e);
+        }
+        return stored;
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyMismatchException("Idempotency key was already used for a different request");
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(stored.status())
+                .header(REPLAYED_HEADER, "true");
+        if (stored.location() != null) {
+            builder.header(HttpHeaders.LOCATION, stored.location());
+        }
+        if (stored.body() == null) {
+            return builder.build();
+        }
+        return builder.contentType(MediaType.parseMediaType(stored.contentType())).body(stored.body());
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Idempotent request is not serializable", e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record StoredResponse(String requestHash, int status, String contentType, String location, String body) {
+        static StoredResponse of(IdempotencyRecord record) {
+            return new StoredResponse(record.getRequestHash(), record.getResponseStatus(), record.getContentType(),
+                    record.getLocation(), record.getResponseBody());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.upnext.orderservice.Mappers.OrderMapper;
+import org.upnext.orderservice.Mappers.OrderRowMapper;
+import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.Repositories.OrderRepository;
+import org.upnext.orderservice.Repositories.Projections.OrderItemRow;
+import org.upnext.sharedlibrary.Dtos.OrderDto;
+import org.upnext.sharedlibrary.Enums.OrderStatus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Streams orders as newline-delimited JSON straight from a database cursor.
+ * Rows are read as projections and folded into one order at a time, so nothing is
+ * managed by the persistence context and heap stays flat for any export size.
+ * Products are written as ids only; exports never go out to product-service.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderExportService {
+
+    private static final LocalDateTime EARLIEST = LocalDate.EPOCH.atStartOfDay();
+    private static final LocalDateTime LATEST = LocalDate.of(9999, 12, 31).atStartOfDay();
+
+    private final OrderRepository orderRepository;
+    private final OrderMapper orderMapper;
+    private final ObjectMapper objectMapper;
+
+    @Value("${orders.export.flush-every:500}")
+    private int flushEvery;
+
+    @Transactional(readOnly = true)
+    public long exportNdjson(OutputStream outputStream, LocalDateTime from, LocalDateTime to, OrderStatus status) throws IOException {
+        Set<OrderStatus> statuses = status == null ? EnumSet.allOf(OrderStatus.class) : EnumSet.of(status);
+        ObjectWriter writer = objectMapper.writerFor(OrderDto.class)
+                .withRootValueSeparator("\n")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        long written = 0;
+        try (Stream<OrderItemRow> rows = orderRepository.streamRowsForExport(
+                from == null ? EARLIEST : from, to == null ? LATEST : to, statuses);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)
+                     .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+
+            Iterator<Order> orders = OrderRowMapper.toOrders(rows.iterator());
+            while (orders.hasNext()) {
+                writer.writeValue(generator, orderMapper.toOrderDto(orders.next()));
+                written++;
+                if (written % flushEvery == 0) {
+                    generator.flush();
+                }
+            }
+            if (written > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+        return written;
+    }
+}
@@ -0,0 +1,167 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.upnext.orderservice.Dtos.OrderPageResponse;
+import org.upnext.orderservice.Events.OrderHistoryInvalidatedEvent;
+import org.upnext.orderservice.Models.Order;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.upnext.orderservice.Configurations.CacheConfig.ORDER_HISTORY_CACHE;
+import static org.upnext.orderservice.Configurations.OrderHistoryRabbitMqConfig.EXCHANGE;
+
+/**
+ * The rendered first page of a user's order history, keyed by user id. Every write that
+ * changes a user's orders evicts after its commit, locally and, with
+ * {@code orders.history-cache.broadcast}, on all other instances through a fanout exchange.
+ * <p>
+ * A page is loaded outside the cache, since the load includes the product fan-out and a
+ * slow product-service must not hold the cache's bin locks for other users. Every eviction
+ * bumps a generation counter for its user, first; a load that saw the counter move while it
+ * ran removes its page again, so it is served once but not cached. Concurrent misses for
+ * the same user may both load.
+ * <p>
+ * The page carries the products as enriched at load time. product.changed refreshes the
+ * product cache but not these pages, so they show the old product data until
+ * {@code orders.history-cache.expire-after-write} (5m by default).
+ * <p>
+ * The broadcast also carries the order ids, so other instances drop those orders from their
+ * second-level cache; the instance that wrote them keeps its own cache current through Hibernate.
+ * <p>
+ * Hit ratio comes from the cache metrics; {@code orders.history.cache.age} is the age of
+ * the page served and {@code orders.history.cache.invalidation.lag} the delay before a
+ * remote instance evicted.
+ */
+@Component
+@Slf4j
+public class OrderHistoryCache {
+
+    private record CachedPage(OrderPageResponse page, long cachedAt) {
+    }
+
+    // per-user eviction generations, striped to bound memory; a shared stripe only costs a skipped put
+    private static final int GENERATION_STRIPES = 4096;
+
+    private final Cache cache;
+    private final jakarta.persistence.Cache entityCache;
+    private final RabbitTemplate rabbitTemplate;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    private final Timer age;
+    private final Timer invalidationLag;
+
+    @Value("${orders.history-cache.broadcast:true}")
+    private boolean broadcast;
+
+    public OrderHistoryCache(CacheManager cacheManager, EntityManagerFactory entityManagerFactory,
+                             RabbitTemplate rabbitTemplate, MeterRegistry meterRegistry) {
+        this.cache = Objects.requireNonNull(cacheManager.getCache(ORDER_HISTORY_CACHE));
+        this.entityCache = entityManagerFactory.getCache();
+        this.rabbitTemplate = rabbitTemplate;
+        this.age = Timer.builder("orders.history.cache.age")
+                .description("Age of the order-history page served from the cache")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.invalidationLag = Timer.builder("orders.history.cache.invalidation.lag")
+                .description("Time from a commit on one instance to the eviction on another")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public OrderPageResponse get(Long userId, Supplier<OrderPageResponse> loader) {
+        CachedPage cached = cache.get(userId, CachedPage.class);
+        if (cached != null) {
+            age.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - cached.cachedAt())));
+            return cached.page();
+        }
+        int stripe = stripe(userId);
+        long generation = generations.get(stripe);
+        OrderPageResponse page = loader.get();
+        cache.putIfAbsent(userId, new CachedPage(page, System.currentTimeMillis()));
+        // evicted while loading: the page may predate that write
+        if (generations.get(stripe) != generation) {
+            cache.evict(userId);
+        }
+        age.record(Duration.ZERO);
+        return page;
+    }
+
+    public void evictAfterCommit(Order order) {
+        evictAfterCommit(List.of(order));
+    }
+
+    public void evictAfterCommit(Collection<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Set<Long> userIds = orders.stream().map(Order::getUserId).collect(Collectors.toSet());
+        List<Long> orderIds = orders.stream().map(Order::getId).toList();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(userIds, orderIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(userIds, orderIds);
+            }
+        });
+    }
+
+    @RabbitListener(queues = "#{orderHistoryInvalidationQueue.name}")
+    public void onInvalidated(OrderHistoryInvalidatedEvent event) {
+        if (instanceId.equals(event.getOrigin()) || event.getUserIds() == null) {
+            return;
+        }
+        event.getUserIds().forEach(this::evictUser);
+        if (event.getOrderIds() != null) {
+            event.getOrderIds().forEach(orderId -> entityCache.evict(Order.class, orderId));
+        }
+        if (event.getPublishedAt() != null) {
+            invalidationLag.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - event.getPublishedAt())));
+        }
+    }
+
+    private void evictUser(Long userId) {
+        generations.incrementAndGet(stripe(userId));
+        cache.evict(userId);
+    }
+
+    private static int stripe(Long userId) {
+        return Long.hashCode(userId) & (GENERATION_STRIPES - 1);
+    }
+
+    private void evict(Collection<Long> userIds, List<Long> orderIds) {
+        userIds.forEach(this::evictUser);
+        if (!broadcast) {
+            return;
+        }
+        try {
+            rabbitTemplate.convertAndSend(EXCHANGE, "",
+                    new OrderHistoryInvalidatedEvent(List.copyOf(userIds), orderIds, instanceId, System.currentTimeMillis()));
+        } catch (AmqpException e) {
+            // other instances serve the old page and order until they expire
+            log.warn("Could not broadcast the eviction of {} orders: {}", orderIds.size(), e.getMessage());
+        }
+    }
+}
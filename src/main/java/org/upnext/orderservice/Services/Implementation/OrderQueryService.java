@@ -0,0 +1,67 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.upnext.orderservice.Mappers.OrderRowMapper;
+import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.Repositories.OrderRepository;
+import org.upnext.orderservice.Utils.OrderCursor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Read side of the order listings: every page costs two queries no matter how many
+ * orders or items it holds, and the orders it returns are detached. A single order is
+ * read by id through the second-level cache instead, so once it and its items are
+ * cached it costs no query at all.
+ */
+@Service
+@RequiredArgsConstructor
+public class OrderQueryService {
+
+    private final OrderRepository orderRepository;
+
+    @Transactional(readOnly = true)
+    public Slice<Order> findPage(Long userId, OrderCursor after, int size) {
+        Pageable pageable = PageRequest.ofSize(size);
+        Slice<Long> ids;
+        if (userId == null) {
+            ids = after == null
+                    ? orderRepository.findPageIds(pageable)
+                    : orderRepository.findPageIdsBefore(after.orderDate(), after.id(), pageable);
+        } else {
+            ids = after == null
+                    ? orderRepository.findPageIdsByUserId(userId, pageable)
+                    : orderRepository.findPageIdsByUserIdBefore(userId, after.orderDate(), after.id(), pageable);
+        }
+        if (!ids.hasContent()) {
+            return new SliceImpl<>(List.of(), pageable, false);
+        }
+
+        Map<Long, Order> orders = OrderRowMapper.toOrders(orderRepository.findRowsByIdIn(ids.getContent()))
+                .stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        List<Order> page = ids.getContent().stream()
+                .map(orders::get)
+                .toList();
+        return new SliceImpl<>(page, pageable, ids.hasNext());
+    }
+
+    // an entity graph query would skip the cache; the order and then its items are looked up there first
+    @Transactional(readOnly = true)
+    public Optional<Order> findWithItems(Long id) {
+        Optional<Order> order = orderRepository.findById(id);
+        order.ifPresent(found -> Hibernate.initialize(found.getItems()));
+        return order;
+    }
+}
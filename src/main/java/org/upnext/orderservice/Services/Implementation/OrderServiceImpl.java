@@ -8,11 +8,18 @@ import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang.NullArgumentException;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.UriComponentsBuilder;
 import org.upnext.orderservice.Clients.CartClient;
-import org.upnext.orderservice.Clients.ProductClient;
+import org.upnext.orderservice.Dtos.OrderPageResponse;
+import org.upnext.orderservice.Dtos.CheckoutStatusResponse;
+import org.upnext.orderservice.Enums.CheckoutStatus;
+import org.upnext.orderservice.Enums.OutboxEventType;
+import org.upnext.orderservice.Events.CheckoutRequestedEvent;
 import org.upnext.orderservice.Exceptions.EmptyCartException;
 import org.upnext.orderservice.Exceptions.OrderNotFoundException;
 import org.upnext.orderservice.Exceptions.OrderStatusException;
@@ -21,6 +28,7 @@ import org.upnext.orderservice.Mappers.OrderMapper;
 import org.upnext.orderservice.Models.Order;
 import org.upnext.orderservice.Repositories.OrderRepository;
 import org.upnext.orderservice.Services.OrderService;
+import org.upnext.orderservice.Utils.OrderCursor;
 import org.upnext.sharedlibrary.Dtos.*;
 import org.upnext.sharedlibrary.Enums.OrderStatus;
 import org.upnext.sharedlibrary.Enums.PaymentMethod;
@@ -29,7 +37,11 @@ import org.upnext.sharedlibrary.Errors.Result;
 
 import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static org.upnext.orderservice.Configurations.PaymentRabbitMqConfig.*;
 import static org.upnext.orderservice.Errors.OrderErrors.*;
@@ -39,13 +51,25 @@ import static org.upnext.orderservice.Errors.OrderErrors.*;
 public class OrderServiceImpl implements OrderService {
 
     private final OrderRepository orderRepository;
+    private final OrderQueryService orderQueryService;
     private final OrderMapper orderMapper;
     private final CartClient cartClient;
-    private final ProductClient productClient;
+    private final ProductCatalogService productCatalogService;
+    private final OutboxService outboxService;
+    private final PaymentEventService paymentEventService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final OrderHistoryCache orderHistoryCache;
+    private final OrderStatisticsService orderStatisticsService;
 
     @Lazy
     private final StripePaymentService stripePaymentService;
 
+    @Value("${orders.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${orders.page.max-size:100}")
+    private int maxPageSize;
+
     @Override
     public Optional<Order> getOrderObjectById(Long id) {
         return orderRepository.findById(id);
@@ -53,7 +77,7 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public Result<OrderDto> getOrderById(UserDto userDto, Long id) {
-        Optional<Order> orderOptional = getOrderObjectById(id);
+        Optional<Order> orderOptional = orderQueryService.findWithItems(id);
 
         if (orderOptional.isEmpty() || (!userDto.getRole().equals("ADMIN") && !userDto.getId().equals(orderOptional.get().getUserId()))) {
             return Result.failure(OrderNotFound);
@@ -61,34 +85,58 @@ public class OrderServiceImpl implements OrderService {
 
         Order order = orderOptional.get();
         OrderDto orderDto = orderMapper.toOrderDto(order);
-        fillProductDto(orderDto);
+        fillProductDto(List.of(orderDto));
 
         return Result.success(orderDto);
     }
 
     @Override
-    public Result<List<OrderDto>> getAllOrders() {
-        List<OrderDto> orders = orderRepository.findAll()
-                .stream()
-                .map(orderMapper::toOrderDto)
-                .toList();
+    public Result<OrderPageResponse> getAllOrders(String cursor, Integer size) {
+        return getOrderPage(null, cursor, size);
+    }
 
-        orders.forEach(this::fillProductDto);
+    @Override
+    public Result<OrderPageResponse> getUserOrders(Long userId, String cursor, Integer size) {
+        return getOrderPage(userId, cursor, size);
+    }
 
-        return Result.success(orders);
+    private Result<OrderPageResponse> getOrderPage(Long userId, String cursor, Integer size) {
+        OrderCursor after;
+        try {
+            after = cursor == null || cursor.isBlank() ? null : OrderCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return Result.failure(InvalidCursor);
+        }
+
+        int pageSize = pageSize(size);
+        // only a user's first page at the default size is cached; that is what /orders/me asks for
+        if (userId != null && after == null && pageSize == defaultPageSize) {
+            return Result.success(orderHistoryCache.get(userId, () -> loadOrderPage(userId, null, pageSize)));
+        }
+        return Result.success(loadOrderPage(userId, after, pageSize));
     }
 
-    @Override
-    public Result<List<OrderDto>> getUserOrders(Long userId) {
+    private OrderPageResponse loadOrderPage(Long userId, OrderCursor after, int pageSize) {
+        Slice<Order> slice = orderQueryService.findPage(userId, after, pageSize);
 
-        List<OrderDto> orders = orderRepository.findAllByUserId(userId)
+        List<OrderDto> orders = slice.getContent()
                 .stream()
                 .map(orderMapper::toOrderDto)
                 .toList();
 
-        orders.forEach(this::fillProductDto);
+        fillProductDto(orders);
 
-        return Result.success(orders);
+        String nextCursor = slice.hasNext()
+                ? OrderCursor.of(slice.getContent().get(slice.getNumberOfElements() - 1)).encode()
+                : null;
+        return new OrderPageResponse(orders, nextCursor, slice.hasNext());
+    }
+
+    private int pageSize(Integer size) {
+        if (size == null || size <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(size, maxPageSize);
     }
 
     @Override
@@ -96,34 +144,72 @@ public class OrderServiceImpl implements OrderService {
     public Result<OrderPaymentResponse> placeOrder(@Valid UserDto userDto, OrderPaymentRequest orderPaymentRequest, UriComponentsBuilder urb) throws StripeException {
 
         CartDto cartDto = cartClient.getCart();
+        // the sequence assigns the id here; the batched insert waits for the commit and already carries the session id
+        Order order = createOrder(cartDto);
+
+        // the connection taken by createOrder's statements stays checked out during this call;
+        // placeOrderAsync is the path that keeps Stripe latency off the pool
+        Session session = stripePaymentService.createSession(order);
+        order.setPaymentTransactionId(session.getId());
+        order.setCheckoutStatus(CheckoutStatus.READY);
+        order.setCheckoutUrl(session.getUrl());
 
+        OrderPaymentResponse orderPaymentDto = new OrderPaymentResponse();
+        orderPaymentDto.setOrderId(order.getId());
+        orderPaymentDto.setAmount(order.getTotalCost());
+        orderPaymentDto.setUserId(userDto.getId());
+        orderPaymentDto.setUrl(session.getUrl());
+
+        return Result.success(orderPaymentDto);
+
+    }
+
+    @Override
+    @Transactional
+    public Result<CheckoutStatusResponse> placeOrderAsync(UserDto userDto, OrderPaymentRequest orderPaymentRequest, UriComponentsBuilder urb) {
+
+        CartDto cartDto = cartClient.getCart();
+        Order order = createOrder(cartDto);
+        order.setCheckoutStatus(CheckoutStatus.PROCESSING);
+
+        // the Stripe session is created by CheckoutSessionWorker once this commits
+        eventPublisher.publishEvent(new CheckoutRequestedEvent(order.getId()));
+
+        return Result.success(new CheckoutStatusResponse(order.getId(), CheckoutStatus.PROCESSING, null, order.getTotalCost()));
+    }
+
+    @Override
+    public Result<CheckoutStatusResponse> getCheckoutStatus(UserDto userDto, Long id) {
+        Optional<Order> orderOptional = orderRepository.findById(id);
+
+        if (orderOptional.isEmpty() || !userDto.getId().equals(orderOptional.get().getUserId())) {
+            return Result.failure(OrderNotFound);
+        }
+
+        Order order = orderOptional.get();
+        return Result.success(new CheckoutStatusResponse(order.getId(), order.getCheckoutStatus(), order.getCheckoutUrl(), null));
+    }
+
+    // persists the cart as a PENDING order and queues its stock reservation and the cart clean-up
+    private Order createOrder(CartDto cartDto) {
         if (!checkStock(cartDto)) {
             throw new ProductStockException("InSufficient Stock");
         }
 
-        Double totalCost = cartDto.getTotalCost();
-
         Order order = orderMapper.fromCartDto(cartDto);
         if(order.getItems().isEmpty()) {
             throw  new EmptyCartException("Empty Cart");
         }
-        order = orderRepository.save(order);
-
         order.setPaymentMethod(PaymentMethod.CARD);
-        Session session = stripePaymentService.createSession(order);
-        order.setPaymentTransactionId(session.getId());
-
+        order.setStockReservationId(UUID.randomUUID().toString());
         order = orderRepository.save(order);
-        OrderPaymentResponse orderPaymentDto = new OrderPaymentResponse();
-        orderPaymentDto.setOrderId(order.getId());
-        orderPaymentDto.setAmount(totalCost);
-        orderPaymentDto.setUserId(userDto.getId());
-        orderPaymentDto.setUrl(session.getUrl());
-
-        decreaseStock(order);
-
-        return Result.success(orderPaymentDto);
 
+        // product-service and cart-service are called by the outbox relay once this commits
+        outboxService.enqueue(OutboxEventType.STOCK_RESERVE, order.getId(), orderMapper.toStockReservation(order));
+        outboxService.enqueue(OutboxEventType.CART_CLEAR, order.getId(), null);
+        orderStatisticsService.recordPlaced(order);
+        orderHistoryCache.evictAfterCommit(order);
+        return order;
     }
 
     private boolean checkStock(CartDto cartDto) {
@@ -135,19 +221,20 @@ public class OrderServiceImpl implements OrderService {
         return true;
     }
 
-    private void increaseStock(Order order) {
-        order.getItems().forEach(item -> {
-            updateStock(item.getProductId(), item.getQuantity(), 1);
-        });
+    // a PROCESSING checkout is stopped before CheckoutSessionWorker stores a session for it,
+    // and a session that can still be paid is expired
+    private void endCheckout(Order order, boolean unpaid) {
+        if (order.getCheckoutStatus() == CheckoutStatus.PROCESSING || order.getCheckoutStatus() == CheckoutStatus.READY) {
+            order.setCheckoutStatus(CheckoutStatus.FAILED);
+            order.setCheckoutUrl(null);
+        }
+        if (unpaid && order.getPaymentTransactionId() != null) {
+            outboxService.enqueue(OutboxEventType.CHECKOUT_EXPIRE, order.getId(), order.getPaymentTransactionId());
+        }
     }
 
-    private void decreaseStock(Order order) {
-        order.getItems().forEach(item -> {
-            updateStock(item.getProductId(), item.getQuantity(), -1);
-        });    }
-
-    private void updateStock(Long productId, Integer quantity, Integer factor) {
-        productClient.updateStock(productId, new StockUpdateRequest(factor * quantity));
+    private void releaseStock(Order order) {
+        outboxService.enqueue(OutboxEventType.STOCK_RELEASE, order.getId(), orderMapper.toStockReservation(order));
     }
 
     @Override
@@ -166,7 +253,11 @@ public class OrderServiceImpl implements OrderService {
     @Override
     @Transactional
     public Result<?> updateOrderStatus(Long id, OrderStatusRequest orderStatusRequest) {
-        Order order = getOrderObjectById(id).orElse(null);
+        if(orderStatusRequest.getPaymentStatus() == null || orderStatusRequest.getOrderStatus() == null ) {
+            throw new NullArgumentException("Order status or order payment status is null");
+        }
+        // locked, so the bucket the counters move the order out of is the one it is really in
+        Order order = orderRepository.findForUpdateById(id).orElse(null);
         if (order == null) {
             throw new OrderNotFoundException("Order not found");
         }
@@ -175,57 +266,34 @@ public class OrderServiceImpl implements OrderService {
         }
 
 
+        OrderStatisticsService.Bucket before = OrderStatisticsService.Bucket.of(order);
         order.setOrderStatus(orderStatusRequest.getOrderStatus());
         order.setPaymentStatus(orderStatusRequest.getPaymentStatus());
         orderRepository.save(order);
-        if(orderStatusRequest.getPaymentStatus() == null || orderStatusRequest.getOrderStatus() == null ) {
-            throw new NullArgumentException("Order status or order payment status is null");
-        }
+        orderStatisticsService.recordMoved(order, before);
+        orderHistoryCache.evictAfterCommit(order);
 
         return Result.success();
     }
 
-    @RabbitListener(queues = SUCCESS_QUEUE)
-    @Transactional
-    public void orderPaymentSuccess(SuccessfulPaymentEvent successfulPaymentEvent) {
-        Long orderId = successfulPaymentEvent.getOrderId();
-        Order order = getOrderObjectById(orderId).orElse(null);
-        if (order == null) {
-            return;
-        }
-        System.out.println("Order Payment Success"+ successfulPaymentEvent);
-
-        OrderStatusRequest orderStatusRequest = OrderStatusRequest.builder()
-                                                .orderStatus(OrderStatus.CONFIRMED)
-                                                .paymentStatus(PaymentStatus.PAID)
-                                                        .build();
-
-        updateOrderStatus(orderId, orderStatusRequest);
+    // Payment outcomes are now consumed per partition by PaymentPartitionConsumer; these drain
+    // whatever is still published to the old per-outcome queues. Batches are acked once the
+    // listener returns, after PaymentEventService has committed.
+    @RabbitListener(queues = SUCCESS_QUEUE, containerFactory = BATCH_CONTAINER_FACTORY)
+    public void orderPaymentSuccess(List<SuccessfulPaymentEvent> successfulPaymentEvents) {
+        paymentEventService.applySuccesses(successfulPaymentEvents);
     }
 
-    @RabbitListener(queues = FAILURE_QUEUE)
-    @Transactional
-    public void orderPaymentFailure(SuccessfulPaymentEvent successfulPaymentEvent) {
-        Long orderId = successfulPaymentEvent.getOrderId();
-        Order order = getOrderObjectById(orderId).orElse(null);
-        if (order == null) {
-            return;
-        }
-        increaseStock(order);
-        OrderStatusRequest orderStatusRequest = new OrderStatusRequest();
-        OrderStatusRequest.builder()
-                .orderStatus(OrderStatus.CANCELED)
-                .paymentStatus(PaymentStatus.FAILED)
-                        .build();
-        updateOrderStatus(orderId, orderStatusRequest);
+    @RabbitListener(queues = FAILURE_QUEUE, containerFactory = BATCH_CONTAINER_FACTORY)
+    public void orderPaymentFailure(List<SuccessfulPaymentEvent> successfulPaymentEvents) {
+        paymentEventService.applyFailures(successfulPaymentEvents);
     }
 
-
-
     @Override
     @Transactional
     public Result<URI> cancelOrder(UserDto userDto, Long id, UriComponentsBuilder urb) {
-        Optional<Order> orderOpt = orderRepository.findById(id);
+        // locked, so a checkout worker storing its session waits and then sees the cancellation
+        Optional<Order> orderOpt = orderRepository.findForUpdateById(id);
 
         if (orderOpt.isEmpty() || !orderOpt.get().getUserId().equals(userDto.getId())) {
 
@@ -239,10 +307,15 @@ public class OrderServiceImpl implements OrderService {
         }
         URI uri;
         Order order = orderOpt.get();
+        OrderStatisticsService.Bucket before = OrderStatisticsService.Bucket.of(order);
+        boolean unpaid = order.getPaymentStatus() == PaymentStatus.PENDING;
         order.setOrderStatus(OrderStatus.CANCELED);
         order.setPaymentStatus(PaymentStatus.CANCELED);
-        increaseStock(order);
+        endCheckout(order, unpaid);
+        releaseStock(order);
         orderRepository.save(order);
+        orderStatisticsService.recordMoved(order, before);
+        orderHistoryCache.evictAfterCommit(order);
         uri = urb.path("/orders/{id}")
                 .buildAndExpand(order.getId())
                 .toUri();
@@ -250,10 +323,24 @@ public class OrderServiceImpl implements OrderService {
     }
 
 
-    private void fillProductDto(OrderDto orderDto) {
-        orderDto.getOrderItems()
-                .forEach(
-                        orderItemDto -> orderItemDto.setProduct(productClient.getProduct(orderItemDto.getProduct().getId())));
+    private void fillProductDto(List<OrderDto> orders) {
+        List<OrderItemDto> orderItems = orders.stream()
+                .map(OrderDto::getOrderItems)
+                .filter(Objects::nonNull)
+                .flatMap(List::stream)
+                .toList();
+
+        Map<Long, ProductDto> products = productCatalogService.getProducts(
+                orderItems.stream()
+                        .map(orderItemDto -> orderItemDto.getProduct().getId())
+                        .collect(Collectors.toSet()));
+
+        orderItems.forEach(orderItemDto -> {
+            ProductDto product = products.get(orderItemDto.getProduct().getId());
+            if (product != null) {
+                orderItemDto.setProduct(product);
+            }
+        });
     }
 
 }
@@ -0,0 +1,205 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upnext.orderservice.Dtos.OrderStatisticsResponse;
+import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.Models.OrderItem;
+import org.upnext.orderservice.Repositories.OrderDailyStatRepository;
+import org.upnext.orderservice.Repositories.Projections.OrderStatsRow;
+import org.upnext.orderservice.Utils.Money;
+import org.upnext.sharedlibrary.Enums.OrderStatus;
+import org.upnext.sharedlibrary.Enums.PaymentMethod;
+import org.upnext.sharedlibrary.Enums.PaymentStatus;
+import org.upnext.sharedlibrary.Errors.Result;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.upnext.orderservice.Errors.OrderErrors.InvalidDateRange;
+
+/**
+ * Order counts and amounts per placement day, order status, payment status and payment
+ * method, kept in order_daily_stats. Writers call in from the transaction that places or
+ * moves an order, so the counters commit or roll back with it; an order is counted under
+ * the day it was placed. Reads sum a bounded number of counter rows, whatever the order
+ * volume. The rebuild recomputes every counter from the orders table.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatisticsService {
+
+    public record Bucket(LocalDate day, OrderStatus orderStatus, PaymentStatus paymentStatus, PaymentMethod paymentMethod) {
+        public static Bucket of(Order order) {
+            return new Bucket(order.getOrderDate().toLocalDate(), order.getOrderStatus(),
+                    order.getPaymentStatus(), order.getPaymentMethod());
+        }
+    }
+
+    // every writer upserts its rows in this order, so two transactions never wait on each other in a cycle
+    private static final Comparator<Bucket> LOCK_ORDER = Comparator.comparing(Bucket::day)
+            .thenComparing(Bucket::orderStatus)
+            .thenComparing(Bucket::paymentStatus)
+            .thenComparing(Bucket::paymentMethod);
+
+    private static final class Delta {
+        long orders;
+        long amountCents;
+    }
+
+    private final OrderDailyStatRepository orderDailyStatRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${orders.statistics.shards:8}")
+    private int shards;
+
+    @Value("${orders.statistics.default-days:30}")
+    private int defaultDays;
+
+    @Value("${orders.statistics.max-days:366}")
+    private int maxDays;
+
+    @Transactional
+    public void recordPlaced(Order order) {
+        Map<Bucket, Delta> deltas = new TreeMap<>(LOCK_ORDER);
+        add(deltas, Bucket.of(order), 1, amountCents(order));
+        apply(deltas);
+    }
+
+    // call with the bucket the order was in before it changed
+    @Transactional
+    public void recordMoved(Order order, Bucket from) {
+        recordMoved(List.of(order), List.of(from));
+    }
+
+    // orders and their previous buckets, in the same order; one upsert per bucket whatever the number of orders
+    @Transactional
+    public void recordMoved(List<Order> orders, List<Bucket> from) {
+        Map<Bucket, Delta> deltas = new TreeMap<>(LOCK_ORDER);
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            Bucket to = Bucket.of(order);
+            if (to.equals(from.get(i))) {
+                continue;
+            }
+            long amountCents = amountCents(order);
+            add(deltas, from.get(i), -1, -amountCents);
+            add(deltas, to, 1, amountCents);
+        }
+        apply(deltas);
+    }
+
+    public Result<OrderStatisticsResponse> getStatistics(LocalDate from, LocalDate to) {
+        LocalDate end = to == null ? LocalDate.now().plusDays(1) : to;
+        LocalDate start = from == null ? end.minusDays(defaultDays) : from;
+        if (!start.isBefore(end) || ChronoUnit.DAYS.between(start, end) > maxDays) {
+            return Result.failure(InvalidDateRange);
+        }
+
+        long orders = 0;
+        long revenueCents = 0;
+        Map<OrderStatus, Delta> byStatus = new EnumMap<>(OrderStatus.class);
+        Map<PaymentStatus, Delta> byPaymentStatus = new EnumMap<>(PaymentStatus.class);
+        Map<PaymentMethod, Delta> byPaymentMethod = new EnumMap<>(PaymentMethod.class);
+        Map<LocalDate, Delta> daily = new TreeMap<>();
+        Map<LocalDate, Long> dailyRevenueCents = new HashMap<>();
+
+        for (OrderStatsRow row : orderDailyStatRepository.sumByDay(start, end)) {
+            long count = row.orderCount();
+            long amountCents = row.amountCents();
+            long paidCents = row.paymentStatus() == PaymentStatus.PAID ? amountCents : 0;
+            orders += count;
+            revenueCents += paidCents;
+            add(byStatus, row.orderStatus(), count, amountCents);
+            add(byPaymentStatus, row.paymentStatus(), count, amountCents);
+            add(byPaymentMethod, row.paymentMethod(), count, amountCents);
+            add(daily, row.day(), count, amountCents);
+            dailyRevenueCents.merge(row.day(), paidCents, Long::sum);
+        }
+
+        List<OrderStatisticsResponse.Day> days = new ArrayList<>();
+        daily.forEach((day, totals) -> {
+            if (totals.orders != 0) {
+                days.add(new OrderStatisticsResponse.Day(day, totals.orders,
+                        Money.fromCents(totals.amountCents), Money.fromCents(dailyRevenueCents.get(day))));
+            }
+        });
+        return Result.success(new OrderStatisticsResponse(start, end, orders, Money.fromCents(revenueCents),
+                totals(byStatus), totals(byPaymentStatus), totals(byPaymentMethod), days));
+    }
+
+    // every replica fires the cron; the one that gets the advisory lock rebuilds and the others skip
+    @Scheduled(cron = "${orders.statistics.rebuild-cron:0 30 3 * * *}")
+    public void scheduledRebuild() {
+        Integer counters = transactionTemplate.execute(status ->
+                orderDailyStatRepository.tryLockScheduledRebuild() ? replaceCounters() : null);
+        if (counters == null) {
+            log.info("Skipping the order statistics rebuild, another replica is running it");
+            return;
+        }
+        log.info("Rebuilt order statistics: {} counters", counters);
+    }
+
+    public int rebuild() {
+        Integer counters = transactionTemplate.execute(status -> replaceCounters());
+        log.info("Rebuilt order statistics: {} counters", counters);
+        return Objects.requireNonNullElse(counters, 0);
+    }
+
+    private int replaceCounters() {
+        orderDailyStatRepository.lockForRebuild();
+        orderDailyStatRepository.deleteAllCounters();
+        return orderDailyStatRepository.insertCountersFromOrders();
+    }
+
+    // all rows of one call go to the same shard
+    private void apply(Map<Bucket, Delta> deltas) {
+        short shard = (short) ThreadLocalRandom.current().nextInt(shards);
+        deltas.forEach((bucket, delta) -> {
+            if (delta.orders == 0 && delta.amountCents == 0) {
+                return;
+            }
+            orderDailyStatRepository.add(bucket.day(),
+                    bucket.orderStatus().name(), bucket.paymentStatus().name(), bucket.paymentMethod().name(),
+                    shard, delta.orders, delta.amountCents);
+        });
+    }
+
+    private static <K> void add(Map<K, Delta> totals, K key, long orders, long amountCents) {
+        Delta delta = totals.computeIfAbsent(key, k -> new Delta());
+        delta.orders += orders;
+        delta.amountCents += amountCents;
+    }
+
+    private static <K> Map<K, OrderStatisticsResponse.Totals> totals(Map<K, Delta> deltas) {
+        Map<K, OrderStatisticsResponse.Totals> totals = new LinkedHashMap<>();
+        deltas.forEach((key, delta) -> {
+            if (delta.orders != 0) {
+                totals.put(key, new OrderStatisticsResponse.Totals(delta.orders, Money.fromCents(delta.amountCents)));
+            }
+        });
+        return totals;
+    }
+
+    // same amount the rebuild and the totals backfill compute for orders without stored totals
+    private static long amountCents(Order order) {
+        if (order.getTotalCents() != null) {
+            return order.getTotalCents();
+        }
+        long cents = 0;
+        if (order.getItems() != null) {
+            for (OrderItem item : order.getItems()) {
+                cents += Money.toCents(item.getPrice()) * item.getQuantity();
+            }
+        }
+        return cents;
+    }
+}
@@ -0,0 +1,55 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upnext.orderservice.Repositories.OrderRepository;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Fills the cent columns of orders placed before they existed, one short transaction per
+ * chunk so the tables stay writable. Once no order is missing its totals every run is a
+ * single empty index lookup; the job can then be switched off.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "orders.totals-backfill.enabled", havingValue = "true", matchIfMissing = true)
+public class OrderTotalsBackfill {
+
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${orders.totals-backfill.chunk-size:500}")
+    private int chunkSize;
+
+    @Scheduled(initialDelayString = "${orders.totals-backfill.initial-delay-ms:60000}",
+            fixedDelayString = "${orders.totals-backfill.interval-ms:300000}")
+    public void backfill() {
+        long total = 0;
+        int filled;
+        do {
+            filled = Objects.requireNonNullElse(transactionTemplate.execute(status -> backfillChunk()), 0);
+            total += filled;
+        } while (filled == chunkSize);
+        if (total > 0) {
+            log.info("Backfilled totals of {} orders", total);
+        }
+    }
+
+    private int backfillChunk() {
+        List<Long> orderIds = orderRepository.lockOrdersMissingTotals(chunkSize);
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        orderRepository.backfillItemTotals(orderIds);
+        orderRepository.backfillOrderTotals(orderIds);
+        return orderIds.size();
+    }
+}
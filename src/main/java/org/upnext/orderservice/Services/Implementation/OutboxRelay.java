@@ -0,0 +1,312 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.exception.StripeException;
+import feign.FeignException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageBuilder;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upnext.orderservice.Clients.CartClient;
+import org.upnext.orderservice.Clients.ProductClient;
+import org.upnext.orderservice.Dtos.StockReservationRequest;
+import org.upnext.orderservice.Enums.CheckoutStatus;
+import org.upnext.orderservice.Enums.OutboxEventStatus;
+import org.upnext.orderservice.Enums.OutboxEventType;
+import org.upnext.orderservice.Mappers.OrderMapper;
+import org.upnext.orderservice.Models.OutboxEvent;
+import org.upnext.orderservice.Repositories.OrderRepository;
+import org.upnext.orderservice.Repositories.OutboxEventRepository;
+import org.upnext.orderservice.Utils.ForwardedUserContext;
+import org.upnext.sharedlibrary.Dtos.StockUpdateRequest;
+import org.upnext.sharedlibrary.Enums.OrderStatus;
+import org.upnext.sharedlibrary.Enums.PaymentStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.upnext.orderservice.Configurations.PaymentRabbitMqConfig.*;
+
+/**
+ * Drains the outbox in batches. A batch is claimed in one short transaction that leases its
+ * rows for {@code outbox.relay.lease}; the remote calls run after that commit, without a
+ * connection or row locks held, and their outcomes are written back in a second short
+ * transaction. A relay that dies mid-batch leaves its rows to be claimed again once the
+ * lease runs out, so deliveries are at least once, as before.
+ * <p>
+ * HTTP side effects are called one by one with the X-User of the request that produced
+ * them; messages of a batch are published together and the batch waits for the broker's
+ * publisher confirms before the rows are marked sent. Failures are retried with exponential
+ * backoff until {@code outbox.relay.max-attempts}. A stock reservation that fails for good
+ * cancels its order in the transaction that records the failure: the order's checkout is
+ * ended, its Stripe session expired and its cart left alone.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OrderRepository orderRepository;
+    private final OrderMapper orderMapper;
+    private final OutboxService outboxService;
+    private final OrderStatisticsService orderStatisticsService;
+    private final OrderHistoryCache orderHistoryCache;
+    private final StripePaymentService stripePaymentService;
+    private final RabbitTemplate rabbitTemplate;
+    private final ProductClient productClient;
+    private final CartClient cartClient;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${outbox.relay.batch-size:100}")
+    private int batchSize;
+
+    // longer than a whole batch of calls at their timeouts, or a row is claimed twice
+    @Value("${outbox.relay.lease:10m}")
+    private Duration lease;
+
+    @Value("${outbox.relay.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${payment.partitions:8}")
+    private int partitions;
+
+    @Value("${outbox.relay.confirm-timeout:5s}")
+    private Duration confirmTimeout;
+
+    @Value("${outbox.retention:7d}")
+    private Duration retention;
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:500}")
+    public void relay() {
+        int relayed;
+        do {
+            relayed = relayBatch();
+        } while (relayed == batchSize);
+    }
+
+    @Scheduled(cron = "${outbox.cleanup-cron:0 0 3 * * *}")
+    public void deleteFinishedEvents() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteFinishedBefore(LocalDateTime.now().minus(retention)));
+        log.info("Deleted {} relayed or failed outbox events", deleted);
+    }
+
+    private int relayBatch() {
+        // truncated to the column's precision, so the lease reads back equal when the outcome is stored
+        LocalDateTime leasedUntil = LocalDateTime.now().plus(lease).truncatedTo(ChronoUnit.MICROS);
+        List<OutboxEvent> events = Objects.requireNonNullElse(transactionTemplate.execute(status -> {
+            List<OutboxEvent> claimed = outboxEventRepository.lockNextBatch(batchSize);
+            claimed.forEach(event -> event.setNextAttemptAt(leasedUntil));
+            return claimed;
+        }), List.of());
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        // event id -> failure, null when delivered
+        Map<Long, Exception> outcomes = new HashMap<>();
+        List<OutboxEvent> messages = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            if (event.getType().isMessage()) {
+                messages.add(event);
+            } else {
+                outcomes.put(event.getId(), call(event));
+            }
+        }
+        if (!messages.isEmpty()) {
+            AmqpException failure = publish(messages);
+            messages.forEach(event -> outcomes.put(event.getId(), failure));
+        }
+
+        transactionTemplate.executeWithoutResult(status ->
+                outboxEventRepository.findAllById(outcomes.keySet()).forEach(event -> {
+                    // another relay claimed the row after this lease ran out and owns its outcome now
+                    if (event.getStatus() != OutboxEventStatus.PENDING || !leasedUntil.equals(event.getNextAttemptAt())) {
+                        log.warn("Outbox event {} was claimed again before its outcome was stored", event.getId());
+                        return;
+                    }
+                    Exception failure = outcomes.get(event.getId());
+                    if (failure == null) {
+                        markSent(event);
+                    } else {
+                        markFailed(event, failure);
+                    }
+                }));
+        return events.size();
+    }
+
+    // the failure, or null when the call went through
+    private Exception call(OutboxEvent event) {
+        try {
+            ForwardedUserContext.runAs(event.getUserHeader(), () -> {
+                switch (event.getType()) {
+                    case STOCK_RESERVE -> productClient.reserveStock(read(event, StockReservationRequest.class));
+                    case STOCK_RELEASE -> releaseStock(read(event, StockReservationRequest.class));
+                    case CART_CLEAR -> cartClient.clearCart();
+                    case CHECKOUT_EXPIRE -> callStripe(() -> stripePaymentService.expireSession(read(event, String.class)));
+                    case PAYMENT_REFUND -> callStripe(() -> stripePaymentService.refundSession(read(event, String.class)));
+                    default -> throw new IllegalStateException("Not an HTTP outbox event: " + event.getType());
+                }
+            });
+            return null;
+        } catch (RuntimeException e) {
+            return e.getCause() instanceof StripeException stripeException ? stripeException : e;
+        }
+    }
+
+    // unwrapped again in call(), so the Stripe status decides whether to retry
+    private void callStripe(StripeApiMetrics.StripeCall<?> stripeCall) {
+        try {
+            stripeCall.execute();
+        } catch (StripeException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    private void releaseStock(StockReservationRequest reservation) {
+        if (reservation.getReservationId() != null) {
+            productClient.releaseStock(reservation.getReservationId());
+            return;
+        }
+        // orders placed before reservations were decremented item by item
+        reservation.getItems().forEach(item ->
+                productClient.updateStock(item.getProductId(), new StockUpdateRequest(item.getQuantity())));
+    }
+
+    // the failure of the whole batch, or null when the broker confirmed every message
+    private AmqpException publish(List<OutboxEvent> events) {
+        try {
+            rabbitTemplate.invoke(operations -> {
+                events.forEach(event -> operations.send(PARTITIONED_EXCHANGE, partitionKey(event), toMessage(event)));
+                operations.waitForConfirmsOrDie(confirmTimeout.toMillis());
+                return null;
+            });
+            return null;
+        } catch (AmqpException e) {
+            return e;
+        }
+    }
+
+    // every event of an order lands on the same partition queue
+    private String partitionKey(OutboxEvent event) {
+        if (!event.getType().isMessage()) {
+            throw new IllegalStateException("Not a message outbox event: " + event.getType());
+        }
+        return String.valueOf(partitionOf(event.getAggregateId(), partitions));
+    }
+
+    private Message toMessage(OutboxEvent event) {
+        return MessageBuilder.withBody(event.getPayload().getBytes(StandardCharsets.UTF_8))
+                .setContentType(MessageProperties.CONTENT_TYPE_JSON)
+                .setContentEncoding(StandardCharsets.UTF_8.name())
+                .setHeader(OUTCOME_HEADER, event.getType().name())
+                .setHeader(OCCURRED_AT_HEADER, event.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+                .setTimestamp(new Date())
+                .build();
+    }
+
+    private <T> T read(OutboxEvent event, Class<T> type) {
+        try {
+            return objectMapper.readValue(event.getPayload(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable outbox payload " + event.getId(), e);
+        }
+    }
+
+    private void markSent(OutboxEvent event) {
+        event.setStatus(OutboxEventStatus.SENT);
+        event.setSentAt(LocalDateTime.now());
+        event.setLastError(null);
+    }
+
+    private void markFailed(OutboxEvent event, Exception e) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(abbreviate(e.getMessage()));
+        if (attempts >= maxAttempts || isPermanent(e)) {
+            event.setStatus(OutboxEventStatus.FAILED);
+            log.error("Giving up on outbox event {} ({}) for aggregate {} after {} attempts",
+                    event.getId(), event.getType(), event.getAggregateId(), attempts, e);
+            if (event.getType() == OutboxEventType.STOCK_RESERVE) {
+                cancelUnreservedOrder(event);
+            }
+            return;
+        }
+        Duration backoff = Duration.ofSeconds(1L << Math.min(attempts - 1, 16));
+        event.setNextAttemptAt(LocalDateTime.now().plus(backoff.compareTo(MAX_BACKOFF) < 0 ? backoff : MAX_BACKOFF));
+        log.warn("Outbox event {} ({}) failed, attempt {}: {}", event.getId(), event.getType(), attempts, e.getMessage());
+    }
+
+    // The order's stock was never reserved, so it must not be paid for: it is canceled, its
+    // checkout ended, its Stripe session expired, and its cart, still queued to be cleared
+    // behind the reservation, is kept. A reservation that timed out may still have been
+    // taken by product-service, so it is released as well; an unknown one is a 4xx and dropped.
+    private void cancelUnreservedOrder(OutboxEvent reservation) {
+        Long orderId = reservation.getAggregateId();
+        outboxService.cancelPending(OutboxEventType.CART_CLEAR, orderId, "Order canceled: stock reservation failed");
+
+        orderRepository.findForUpdateById(orderId).ifPresent(order -> {
+            if (order.getOrderStatus() != OrderStatus.PENDING) {
+                log.error("Stock reservation for order {} failed but the order is already {}, it needs a manual review",
+                        orderId, order.getOrderStatus());
+                return;
+            }
+            OrderStatisticsService.Bucket before = OrderStatisticsService.Bucket.of(order);
+            order.setOrderStatus(OrderStatus.CANCELED);
+            order.setPaymentStatus(PaymentStatus.FAILED);
+            // also stops an async checkout whose session is still being created
+            order.setCheckoutStatus(CheckoutStatus.FAILED);
+            order.setCheckoutUrl(null);
+            orderStatisticsService.recordMoved(order, before);
+            if (order.getPaymentTransactionId() != null) {
+                outboxService.enqueueFollowUp(OutboxEventType.CHECKOUT_EXPIRE, orderId, order.getPaymentTransactionId());
+            }
+            if (order.getStockReservationId() != null) {
+                outboxService.enqueueFollowUp(OutboxEventType.STOCK_RELEASE, orderId, orderMapper.toStockReservation(order));
+            }
+            orderHistoryCache.evictAfterCommit(order);
+            log.warn("Canceled order {}: stock reservation failed", orderId);
+        });
+    }
+
+    // a 4xx other than timeout/throttling will not succeed on retry
+    private boolean isPermanent(Exception e) {
+        if (e instanceof FeignException feignException) {
+            int status = feignException.status();
+            return status >= 400 && status < 500 && status != 408 && status != 429;
+        }
+        if (e instanceof StripeException stripeException) {
+            Integer status = stripeException.getStatusCode();
+            return status != null && status >= 400 && status < 500 && status != 429;
+        }
+        return e instanceof IllegalStateException;
+    }
+
+    private String abbreviate(String message) {
+        if (message == null || message.length() <= 1000) {
+            return message;
+        }
+        return message.substring(0, 1000);
+    }
+}
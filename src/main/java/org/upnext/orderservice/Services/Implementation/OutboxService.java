@@ -0,0 +1,72 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.upnext.orderservice.Enums.OutboxEventStatus;
+import org.upnext.orderservice.Enums.OutboxEventType;
+import org.upnext.orderservice.Models.OutboxEvent;
+import org.upnext.orderservice.Repositories.OutboxEventRepository;
+import org.upnext.orderservice.Utils.ForwardedUserContext;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records a side effect in the same transaction as the change that caused it;
+ * {@link OutboxRelay} performs it after commit.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    @Transactional
+    public void enqueue(OutboxEventType type, Long aggregateId, Object payload) {
+        enqueue(type, aggregateId, payload, null);
+    }
+
+    // occurredAt dates the event from what triggered it instead of from this call; null means now
+    @Transactional
+    public void enqueue(OutboxEventType type, Long aggregateId, Object payload, LocalDateTime occurredAt) {
+        OutboxEvent event = new OutboxEvent();
+        event.setCreatedAt(occurredAt);
+        event.setType(type);
+        event.setAggregateId(aggregateId);
+        event.setPayload(payload == null ? null : toJson(payload));
+        event.setUserHeader(ForwardedUserContext.current());
+        outboxEventRepository.save(event);
+    }
+
+    // for work done off the request thread: acts as the user of the request that produced the aggregate's first event
+    @Transactional
+    public void enqueueFollowUp(OutboxEventType type, Long aggregateId, Object payload) {
+        String userHeader = outboxEventRepository.findFirstByAggregateIdOrderByIdAsc(aggregateId)
+                .map(OutboxEvent::getUserHeader)
+                .orElse(null);
+        ForwardedUserContext.runAs(userHeader, () -> enqueue(type, aggregateId, payload));
+    }
+
+    // for an order that is given up before its queued side effects ran, e.g. the cart clean-up
+    // of a checkout that failed: the user keeps the cart to try again
+    @Transactional
+    public void cancelPending(OutboxEventType type, Long aggregateId, String reason) {
+        outboxEventRepository.findByAggregateIdAndStatus(aggregateId, OutboxEventStatus.PENDING).stream()
+                .filter(event -> event.getType() == type)
+                .forEach(event -> {
+                    event.setStatus(OutboxEventStatus.FAILED);
+                    event.setLastError(reason.length() > 1000 ? reason.substring(0, 1000) : reason);
+                });
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Outbox payload is not serializable", e);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.upnext.orderservice.Enums.OutboxEventType;
+import org.upnext.orderservice.Mappers.OrderMapper;
+import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.Repositories.OrderRepository;
+import org.upnext.sharedlibrary.Dtos.SuccessfulPaymentEvent;
+import org.upnext.sharedlibrary.Enums.OrderStatus;
+import org.upnext.sharedlibrary.Enums.PaymentStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Applies a batch of payment outcomes in one transaction. Orders are locked and loaded in
+ * one round trip, past the second-level cache, so a stale cached copy or a concurrent cancel
+ * cannot skew the counters the change moves; the status changes are flushed as one JDBC
+ * batch per 50 orders and keep the cached entries current. Unknown and delivered orders are
+ * skipped instead of failing the batch. The order history of every affected user is evicted
+ * once the batch commits.
+ * <p>
+ * A success is final: a failure reported after it (Stripe does not order its events, and a
+ * checkout can decline a card before accepting another) leaves the paid order alone. A
+ * success for an order that was canceled meanwhile does not revive it, since its stock is
+ * already released; the payment is refunded through the outbox instead.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentEventService {
+
+    private final OrderRepository orderRepository;
+    private final OrderMapper orderMapper;
+    private final OutboxService outboxService;
+    private final OrderHistoryCache orderHistoryCache;
+    private final OrderStatisticsService orderStatisticsService;
+
+    public record PaymentOutcome(boolean success, SuccessfulPaymentEvent event) {
+    }
+
+    // Outcomes of one partition, in queue order. Within a batch only the last outcome of each
+    // order counts, unless an earlier one was a success; the survivors are applied with one
+    // load per outcome type. Returns the orders whose status changed, with their new status.
+    @Transactional
+    public Map<Long, OrderStatus> applyInOrder(List<PaymentOutcome> outcomes) {
+        Map<Long, PaymentOutcome> latest = new LinkedHashMap<>();
+        outcomes.forEach(outcome -> latest.merge(outcome.event().getOrderId(), outcome,
+                (previous, next) -> previous.success() ? previous : next));
+
+        Map<Boolean, List<SuccessfulPaymentEvent>> bySuccess = latest.values().stream()
+                .collect(Collectors.partitioningBy(PaymentOutcome::success,
+                        Collectors.mapping(PaymentOutcome::event, Collectors.toList())));
+        Map<Long, OrderStatus> moved = new HashMap<>();
+        confirm(bySuccess.get(true)).forEach(order -> moved.put(order.getId(), order.getOrderStatus()));
+        cancel(bySuccess.get(false)).forEach(order -> moved.put(order.getId(), order.getOrderStatus()));
+        return moved;
+    }
+
+    @Transactional
+    public int applySuccesses(List<SuccessfulPaymentEvent> events) {
+        return confirm(events).size();
+    }
+
+    @Transactional
+    public int applyFailures(List<SuccessfulPaymentEvent> events) {
+        return cancel(events).size();
+    }
+
+    private List<Order> confirm(List<SuccessfulPaymentEvent> events) {
+        List<Order> orders = new ArrayList<>();
+        for (Order order : loadUpdatable(events)) {
+            if (order.getOrderStatus() == OrderStatus.CANCELED) {
+                refund(order);
+            } else if (order.getPaymentStatus() != PaymentStatus.PAID) {
+                orders.add(order);
+            }
+        }
+        return update(orders, OrderStatus.CONFIRMED, PaymentStatus.PAID);
+    }
+
+    private List<Order> cancel(List<SuccessfulPaymentEvent> events) {
+        List<Order> orders = new ArrayList<>();
+        for (Order order : loadUpdatable(events)) {
+            if (order.getPaymentStatus() == PaymentStatus.PAID) {
+                log.warn("Ignoring a payment failure for order {}, which is already paid", order.getId());
+            } else if (order.getOrderStatus() != OrderStatus.CANCELED) {
+                outboxService.enqueue(OutboxEventType.STOCK_RELEASE, order.getId(), orderMapper.toStockReservation(order));
+                orders.add(order);
+            }
+        }
+        return update(orders, OrderStatus.CANCELED, PaymentStatus.FAILED);
+    }
+
+    private void refund(Order order) {
+        if (order.getPaymentTransactionId() == null) {
+            log.error("Order {} was paid after it was canceled and has no checkout session to refund, it needs a manual review",
+                    order.getId());
+            return;
+        }
+        log.warn("Order {} was paid after it was canceled, refunding session {}", order.getId(), order.getPaymentTransactionId());
+        outboxService.enqueue(OutboxEventType.PAYMENT_REFUND, order.getId(), order.getPaymentTransactionId());
+    }
+
+    private List<Order> loadUpdatable(List<SuccessfulPaymentEvent> events) {
+        List<Long> orderIds = events.stream()
+                .map(SuccessfulPaymentEvent::getOrderId)
+                .distinct()
+                .toList();
+        if (orderIds.isEmpty()) {
+            return List.of();
+        }
+        List<Order> orders = orderRepository.findAllForUpdateByIdIn(orderIds);
+        if (orders.size() < orderIds.size()) {
+            log.warn("Skipping payment events for {} unknown orders", orderIds.size() - orders.size());
+        }
+        return orders.stream()
+                .filter(order -> order.getOrderStatus() != OrderStatus.DELIVERED)
+                .toList();
+    }
+
+    // the orders it moved
+    private List<Order> update(List<Order> orders, OrderStatus orderStatus, PaymentStatus paymentStatus) {
+        if (orders.isEmpty()) {
+            return orders;
+        }
+        List<OrderStatisticsService.Bucket> before = orders.stream().map(OrderStatisticsService.Bucket::of).toList();
+        orders.forEach(order -> {
+            order.setOrderStatus(orderStatus);
+            order.setPaymentStatus(paymentStatus);
+        });
+        orderStatisticsService.recordMoved(orders, before);
+        orderHistoryCache.evictAfterCommit(orders);
+        return orders;
+    }
+}
@@ -0,0 +1,174 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.BatchMessageListener;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.annotation.RabbitListenerConfigurer;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistrar;
+import org.springframework.amqp.rabbit.listener.SimpleRabbitListenerEndpoint;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.upnext.orderservice.Enums.OutboxEventType;
+import org.upnext.sharedlibrary.Dtos.SuccessfulPaymentEvent;
+import org.upnext.sharedlibrary.Enums.OrderStatus;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.upnext.orderservice.Configurations.PaymentRabbitMqConfig.*;
+
+/**
+ * One single-consumer batch container per payment partition queue. Partitions are processed
+ * in parallel while the events of any one order, which always share a partition, are applied
+ * strictly in publish order. Reports queue depth per partition, the time messages waited
+ * between publish and consumption, and the time from the Stripe webhook to the committed
+ * status update, tagged with the status the order moved to.
+ */
+@Component
+@Slf4j
+public class PaymentPartitionConsumer implements RabbitListenerConfigurer {
+
+    private final PaymentEventService paymentEventService;
+    private final ObjectMapper objectMapper;
+    private final AmqpAdmin amqpAdmin;
+    private final MeterRegistry meterRegistry;
+    private final SimpleRabbitListenerContainerFactory containerFactory;
+    private final int partitions;
+    private final Timer lag;
+    private final Timer confirmed;
+    private final Timer canceled;
+
+    public PaymentPartitionConsumer(PaymentEventService paymentEventService,
+                                    ObjectMapper objectMapper,
+                                    AmqpAdmin amqpAdmin,
+                                    MeterRegistry meterRegistry,
+                                    @Qualifier(BATCH_CONTAINER_FACTORY) SimpleRabbitListenerContainerFactory containerFactory,
+                                    @Value("${payment.partitions:8}") int partitions) {
+        this.paymentEventService = paymentEventService;
+        this.objectMapper = objectMapper;
+        this.amqpAdmin = amqpAdmin;
+        this.meterRegistry = meterRegistry;
+        this.containerFactory = containerFactory;
+        this.partitions = partitions;
+        this.lag = Timer.builder("payment.events.lag")
+                .description("Time from publishing a payment event to consuming it")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.confirmed = statusUpdateTimer(OrderStatus.CONFIRMED);
+        this.canceled = statusUpdateTimer(OrderStatus.CANCELED);
+    }
+
+    private Timer statusUpdateTimer(OrderStatus status) {
+        return Timer.builder("payment.webhook.status.update")
+                .description("Time from receiving the Stripe webhook to committing the order status it causes")
+                .tag("outcome", status.name())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void configureRabbitListeners(RabbitListenerEndpointRegistrar registrar) {
+        for (int partition = 0; partition < partitions; partition++) {
+            String queue = partitionQueue(partition);
+            SimpleRabbitListenerEndpoint endpoint = new SimpleRabbitListenerEndpoint();
+            endpoint.setId("payment-partition-" + partition);
+            endpoint.setQueueNames(queue);
+            endpoint.setBatchListener(true);
+            endpoint.setMessageListener((BatchMessageListener) this::onBatch);
+            registrar.registerEndpoint(endpoint, containerFactory);
+
+            Gauge.builder("payment.events.queue.depth", () -> depth(queue))
+                    .description("Payment events waiting in the partition queue")
+                    .tag("partition", String.valueOf(partition))
+                    .register(meterRegistry);
+        }
+    }
+
+    private void onBatch(List<Message> messages) {
+        long now = System.currentTimeMillis();
+        List<PaymentEventService.PaymentOutcome> outcomes = new ArrayList<>(messages.size());
+        List<Long> occurredAt = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            Date published = message.getMessageProperties().getTimestamp();
+            if (published != null) {
+                lag.record(Duration.ofMillis(Math.max(0, now - published.getTime())));
+            }
+            PaymentEventService.PaymentOutcome outcome = read(message);
+            if (outcome != null) {
+                outcomes.add(outcome);
+                occurredAt.add(message.getMessageProperties().getHeader(OCCURRED_AT_HEADER) instanceof Number millis
+                        ? millis.longValue()
+                        : null);
+            }
+        }
+        Map<Long, OrderStatus> moved = paymentEventService.applyInOrder(outcomes);
+
+        // Only orders the batch moved are timed, from the webhook of the outcome that moved them:
+        // the first success of a confirmed order, the last failure of a canceled one. Events
+        // relayed before the header existed are not timed.
+        Map<Long, Long> webhookAt = new HashMap<>();
+        for (int i = 0; i < outcomes.size(); i++) {
+            PaymentEventService.PaymentOutcome outcome = outcomes.get(i);
+            Long orderId = outcome.event().getOrderId();
+            Long occurred = occurredAt.get(i);
+            if (occurred == null) {
+                continue;
+            }
+            if (outcome.success() && moved.get(orderId) == OrderStatus.CONFIRMED) {
+                webhookAt.putIfAbsent(orderId, occurred);
+            } else if (!outcome.success() && moved.get(orderId) == OrderStatus.CANCELED) {
+                webhookAt.put(orderId, occurred);
+            }
+        }
+        // applyInOrder has committed
+        long committed = System.currentTimeMillis();
+        webhookAt.forEach((orderId, occurred) -> {
+            Timer timer = moved.get(orderId) == OrderStatus.CONFIRMED ? confirmed : canceled;
+            timer.record(Duration.ofMillis(Math.max(0, committed - occurred)));
+        });
+    }
+
+    // An unreadable message would be redelivered forever and block its partition, so it is
+    // dropped; so is an outcome this version does not know, rather than taken for a failure.
+    private PaymentEventService.PaymentOutcome read(Message message) {
+        String outcome = Objects.toString(message.getMessageProperties().getHeader(OUTCOME_HEADER), null);
+        boolean success;
+        if (OutboxEventType.PAYMENT_SUCCESS.name().equals(outcome)) {
+            success = true;
+        } else if (OutboxEventType.PAYMENT_FAILURE.name().equals(outcome)) {
+            success = false;
+        } else {
+            log.error("Dropping payment event {} with unknown {} header {}",
+                    message.getMessageProperties().getMessageId(), OUTCOME_HEADER, outcome);
+            return null;
+        }
+        try {
+            SuccessfulPaymentEvent event = objectMapper.readValue(message.getBody(), SuccessfulPaymentEvent.class);
+            if (event.getOrderId() == null) {
+                throw new IOException("missing order id");
+            }
+            return new PaymentEventService.PaymentOutcome(success, event);
+        } catch (IOException e) {
+            log.error("Dropping unreadable payment event {}: {}", message.getMessageProperties().getMessageId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private double depth(String queue) {
+        QueueInformation information = amqpAdmin.getQueueInfo(queue);
+        return information == null ? Double.NaN : information.getMessageCount();
+    }
+}
@@ -0,0 +1,141 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import feign.FeignException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.upnext.orderservice.Clients.ProductClient;
+import org.upnext.orderservice.Utils.ForwardedUserContext;
+import org.upnext.sharedlibrary.Dtos.ProductDto;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Resolves many products at once: distinct ids are split into bounded chunks that are
+ * fetched concurrently through the bulk endpoint. When product-service does not expose
+ * the bulk endpoint (or it is switched off) every id is fetched on its own, in parallel.
+ * A 404 or 405 from the bulk endpoint only switches it off for
+ * product.enrichment.bulk-retry-after, so a deploy in progress or a chunk with an unknown
+ * id does not leave every later read on the fan-out until the next restart.
+ */
+@Component
+public class ProductBatchLoader {
+
+    private final ProductClient productClient;
+    private final Executor executor;
+
+    @Value("${product.enrichment.chunk-size:100}")
+    private int chunkSize;
+
+    @Value("${product.enrichment.bulk-enabled:true}")
+    private boolean bulkEnabled;
+
+    @Value("${product.enrichment.bulk-retry-after:5m}")
+    private Duration bulkRetryAfter;
+
+    // System.nanoTime() before which the bulk endpoint is not tried again
+    private volatile long bulkUnsupportedUntil;
+    private volatile boolean bulkUnsupported;
+
+    public ProductBatchLoader(ProductClient productClient,
+                              @Qualifier("productEnrichmentExecutor") Executor executor) {
+        this.productClient = productClient;
+        this.executor = executor;
+    }
+
+    public Map<Long, ProductDto> loadAll(Collection<Long> productIds) {
+        List<Long> ids = productIds.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+
+        // Feign forwards X-User from the current request, or the one bound off the request thread
+        // (cache refreshes), so the workers need to see it too
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        String userHeader = ForwardedUserContext.current();
+        Map<Long, ProductDto> products = new HashMap<>();
+        List<Long> unresolved = new ArrayList<>();
+
+        if (bulkEnabled && bulkSupported()) {
+            Map<List<Long>, CompletableFuture<List<ProductDto>>> chunks = new LinkedHashMap<>();
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+                chunks.put(chunk, supplyAsync(attributes, userHeader, () -> fetchChunk(chunk)));
+            }
+            chunks.forEach((chunk, future) -> {
+                List<ProductDto> fetched = join(future);
+                if (fetched == null) {
+                    unresolved.addAll(chunk);
+                } else {
+                    fetched.forEach(product -> products.put(product.getId(), product));
+                }
+            });
+        } else {
+            unresolved.addAll(ids);
+        }
+
+        if (!unresolved.isEmpty()) {
+            List<CompletableFuture<ProductDto>> futures = unresolved.stream()
+                    .map(id -> supplyAsync(attributes, userHeader, () -> productClient.getProduct(id)))
+                    .toList();
+            futures.forEach(future -> {
+                ProductDto product = join(future);
+                if (product != null) {
+                    products.put(product.getId(), product);
+                }
+            });
+        }
+
+        return products;
+    }
+
+    // null means the bulk endpoint is not available and the chunk has to be fanned out
+    private List<ProductDto> fetchChunk(List<Long> chunk) {
+        if (!bulkSupported()) {
+            return null;
+        }
+        try {
+            return productClient.getProducts(chunk);
+        } catch (FeignException.NotFound | FeignException.MethodNotAllowed e) {
+            bulkUnsupportedUntil = System.nanoTime() + bulkRetryAfter.toNanos();
+            bulkUnsupported = true;
+            return null;
+        }
+    }
+
+    private boolean bulkSupported() {
+        return !bulkUnsupported || System.nanoTime() - bulkUnsupportedUntil >= 0;
+    }
+
+    private <T> CompletableFuture<T> supplyAsync(RequestAttributes attributes, String userHeader, Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(() -> {
+            RequestContextHolder.setRequestAttributes(attributes);
+            try {
+                return ForwardedUserContext.callAs(userHeader, supplier);
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+        }, executor);
+    }
+
+    private <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.stereotype.Service;
+import org.upnext.orderservice.Events.ProductChangedEvent;
+import org.upnext.sharedlibrary.Dtos.ProductDto;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import static org.upnext.orderservice.Configurations.CacheConfig.PRODUCTS_CACHE;
+
+/**
+ * Read-through product catalog backed by the local {@code products} cache.
+ * Entries are evicted when product-service announces a change on {@code product.exchange}.
+ * While product-service fails, or its circuit breaker is open, reads get whatever the cache
+ * still holds and the remaining items keep only their product id.
+ */
+@Service
+@Slf4j
+public class ProductCatalogService {
+
+    private final LoadingCache<Object, Object> products;
+    private final Counter fallbacks;
+
+    @SuppressWarnings("unchecked")
+    public ProductCatalogService(CacheManager cacheManager, MeterRegistry meterRegistry) {
+        CaffeineCache cache = (CaffeineCache) Objects.requireNonNull(cacheManager.getCache(PRODUCTS_CACHE));
+        this.products = (LoadingCache<Object, Object>) cache.getNativeCache();
+        this.fallbacks = Counter.builder("orders.products.fallback")
+                .description("Product lookups answered from the cache alone because product-service failed")
+                .register(meterRegistry);
+    }
+
+    public Map<Long, ProductDto> getProducts(Collection<Long> productIds) {
+        List<Long> ids = productIds.stream().filter(Objects::nonNull).toList();
+        Map<Object, Object> found;
+        try {
+            found = products.getAll(ids);
+        } catch (RuntimeException e) {
+            log.warn("Product lookup failed, serving cached products only: {}", e.toString());
+            fallbacks.increment();
+            found = products.getAllPresent(ids);
+        }
+        Map<Long, ProductDto> result = new HashMap<>();
+        found.forEach((id, product) -> result.put((Long) id, (ProductDto) product));
+        return result;
+    }
+
+    @RabbitListener(queues = "#{productChangedQueue.name}")
+    public void onProductChanged(ProductChangedEvent productChangedEvent) {
+        if (productChangedEvent.getProductId() != null) {
+            products.invalidate(productChangedEvent.getProductId());
+        }
+    }
+}
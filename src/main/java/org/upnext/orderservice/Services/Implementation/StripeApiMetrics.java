@@ -0,0 +1,52 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import com.stripe.exception.StripeException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.metrics.http.Outcome;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times calls to the Stripe API as stripe.requests, tagged with the operation, the outcome
+ * of the HTTP status Stripe answered with (UNKNOWN when there was no answer) and the
+ * exception type.
+ */
+@Component
+@RequiredArgsConstructor
+public class StripeApiMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    @FunctionalInterface
+    public interface StripeCall<T> {
+        T execute() throws StripeException;
+    }
+
+    public <T> T record(String operation, StripeCall<T> call) throws StripeException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Outcome outcome = Outcome.UNKNOWN;
+        String exception = "none";
+        try {
+            T result = call.execute();
+            outcome = Outcome.SUCCESS;
+            return result;
+        } catch (StripeException e) {
+            exception = e.getClass().getSimpleName();
+            if (e.getStatusCode() != null) {
+                outcome = Outcome.forStatus(e.getStatusCode());
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("stripe.requests")
+                    .description("Calls to the Stripe API")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome.name())
+                    .tag("exception", exception)
+                    .register(meterRegistry));
+        }
+    }
+}
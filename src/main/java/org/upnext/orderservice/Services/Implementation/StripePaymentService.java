@@ -1,15 +1,23 @@
 package org.upnext.orderservice.Services.Implementation;
 
 import com.stripe.exception.StripeException;
+import com.stripe.model.Refund;
 import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.RefundCreateParams;
 import com.stripe.param.checkout.SessionCreateParams;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.upnext.orderservice.Models.Order;
 import org.upnext.orderservice.Models.OrderItem;
 
 @Service
+@RequiredArgsConstructor
 public class StripePaymentService {
+
+    private final StripeApiMetrics stripeApiMetrics;
+
     @Value("${stripe.success-url}")
     private String successUrl;
 
@@ -17,13 +25,49 @@ public class StripePaymentService {
     private String failureUrl;
 
     public Session createSession(Order order) throws StripeException {
+        SessionCreateParams sessionCreateParams = buildSessionParams(order);
+        // a retried checkout for the same order gets the session Stripe already created
+        RequestOptions requestOptions = RequestOptions.builder()
+                .setIdempotencyKey("checkout-session-" + order.getId())
+                .build();
+        return stripeApiMetrics.record("checkout.session.create", () -> Session.create(sessionCreateParams, requestOptions));
+
+    }
+
+    // an expired session can no longer be paid; expiring one that is already expired or paid fails with a 4xx
+    public Session expireSession(String sessionId) throws StripeException {
+        Session session = new Session();
+        session.setId(sessionId);
+        return stripeApiMetrics.record("checkout.session.expire", session::expire);
+    }
+
+    // refunds what was paid through the session; a retried refund gets the one already created
+    public Refund refundSession(String sessionId) throws StripeException {
+        Session session = stripeApiMetrics.record("checkout.session.retrieve", () -> Session.retrieve(sessionId));
+        if (session.getPaymentIntent() == null) {
+            return null;
+        }
+        RefundCreateParams refundParams = RefundCreateParams.builder()
+                .setPaymentIntent(session.getPaymentIntent())
+                .build();
+        RequestOptions requestOptions = RequestOptions.builder()
+                .setIdempotencyKey("refund-" + sessionId)
+                .build();
+        return stripeApiMetrics.record("refund.create", () -> Refund.create(refundParams, requestOptions));
+    }
+
+    public SessionCreateParams buildSessionParams(Order order) {
         SessionCreateParams.Builder builder = SessionCreateParams.builder();
         builder.setMode(SessionCreateParams.Mode.PAYMENT)
                 .setSuccessUrl(successUrl)
                 .setCancelUrl(failureUrl)
                 .putMetadata("orderId", order.getId().toString())
-                        .putMetadata("userId", order.getUserId().toString());
-        System.out.println("Create Session");
+                        .putMetadata("userId", order.getUserId().toString())
+                // payment_intent.* webhooks carry the intent, not the session
+                .setPaymentIntentData(SessionCreateParams.PaymentIntentData.builder()
+                        .putMetadata("orderId", order.getId().toString())
+                        .putMetadata("userId", order.getUserId().toString())
+                        .build());
         for (OrderItem item : order.getItems()) {
             builder.addLineItem(
                     SessionCreateParams.LineItem.builder()
@@ -31,7 +75,7 @@ public class StripePaymentService {
                             .setPriceData(
                                     SessionCreateParams.LineItem.PriceData.builder()
                                             .setCurrency("usd")
-                                            .setUnitAmount((long) (item.getPrice() * 100))
+                                            .setUnitAmount(item.getUnitPriceCents())
                                             .setProductData(
                                                     SessionCreateParams.LineItem.PriceData.ProductData.builder()
                                                             .setName("Product #" + item.getProductId())
@@ -42,9 +86,6 @@ public class StripePaymentService {
                             .build()
             );
         }
-        System.out.println("Session Created");
-        SessionCreateParams sessionCreateParams = builder.build();
-        return Session.create(sessionCreateParams);
-
+        return builder.build();
     }
 }
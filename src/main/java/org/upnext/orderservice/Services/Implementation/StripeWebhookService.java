@@ -0,0 +1,253 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import com.stripe.exception.StripeException;
+import com.stripe.model.Charge;
+import com.stripe.model.Event;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeObject;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.ApiResource;
+import com.stripe.param.PaymentIntentRetrieveParams;
+import com.stripe.param.checkout.SessionListParams;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upnext.orderservice.Enums.OutboxEventType;
+import org.upnext.orderservice.Enums.StripeWebhookEventStatus;
+import org.upnext.orderservice.Events.StripeWebhookReceivedEvent;
+import org.upnext.orderservice.Models.StripeWebhookEvent;
+import org.upnext.orderservice.Repositories.StripeWebhookEventRepository;
+import org.upnext.sharedlibrary.Dtos.SuccessfulPaymentEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Inbox for Stripe webhooks. The controller only verifies and records the event, which
+ * takes one insert; the Stripe lookups and the payment outcome happen here on the
+ * stripeEventExecutor after commit. Redeliveries of a recorded event id are dropped, and
+ * events whose hand-over was lost are re-driven by the sweeper. An event whose order could
+ * not be looked up at Stripe is retried with backoff; a 4xx or
+ * {@code stripe.webhook.max-attempts} failed lookups mark it FAILED for a manual review.
+ * <p>
+ * checkout.session.completed carries the session and its order metadata. A
+ * payment_intent.payment_failed carries the PaymentIntent: the order comes from the metadata
+ * the checkout copies onto it, or, for intents created before that, from the checkout
+ * session that owns the intent.
+ */
+@Service
+@Slf4j
+public class StripeWebhookService {
+
+    private static final String CHECKOUT_COMPLETED = "checkout.session.completed";
+    private static final String PAYMENT_FAILED = "payment_intent.payment_failed";
+    private static final Set<String> HANDLED_TYPES = Set.of(CHECKOUT_COMPLETED, PAYMENT_FAILED);
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(5);
+
+    private final StripeWebhookEventRepository stripeWebhookEventRepository;
+    private final OutboxService outboxService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+    private final StripeApiMetrics stripeApiMetrics;
+
+    @Value("${stripe.webhook.stale-after:10s}")
+    private Duration staleAfter;
+
+    @Value("${stripe.webhook.retention:7d}")
+    private Duration retention;
+
+    @Value("${stripe.webhook.sweep-batch-size:100}")
+    private int sweepBatchSize;
+
+    @Value("${stripe.webhook.max-attempts:10}")
+    private int maxAttempts;
+
+    public StripeWebhookService(StripeWebhookEventRepository stripeWebhookEventRepository,
+                                OutboxService outboxService,
+                                ApplicationEventPublisher eventPublisher,
+                                TransactionTemplate transactionTemplate,
+                                @Qualifier("stripeEventExecutor") Executor executor,
+                                StripeApiMetrics stripeApiMetrics) {
+        this.stripeWebhookEventRepository = stripeWebhookEventRepository;
+        this.outboxService = outboxService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+        this.stripeApiMetrics = stripeApiMetrics;
+    }
+
+    public boolean handles(String type) {
+        return HANDLED_TYPES.contains(type);
+    }
+
+    // false when Stripe is redelivering an event that is already recorded
+    @Transactional
+    public boolean receive(Event event, String payload) {
+        if (stripeWebhookEventRepository.record(event.getId(), event.getType(), payload) == 0) {
+            return false;
+        }
+        eventPublisher.publishEvent(new StripeWebhookReceivedEvent(event.getId()));
+        return true;
+    }
+
+    @TransactionalEventListener
+    public void onReceived(StripeWebhookReceivedEvent received) {
+        executor.execute(() -> process(received.getEventId()));
+    }
+
+    @Scheduled(fixedDelayString = "${stripe.webhook.sweep-interval-ms:10000}")
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        List<String> stale = stripeWebhookEventRepository.findDueBefore(
+                now.minus(staleAfter), now, PageRequest.of(0, sweepBatchSize));
+        stale.forEach(eventId -> executor.execute(() -> process(eventId)));
+        if (!stale.isEmpty()) {
+            log.info("Re-driving {} unprocessed Stripe events", stale.size());
+        }
+    }
+
+    @Scheduled(cron = "${stripe.webhook.cleanup-cron:0 15 3 * * *}")
+    public void deleteProcessedEvents() {
+        Integer deleted = transactionTemplate.execute(status ->
+                stripeWebhookEventRepository.deleteProcessedBefore(LocalDateTime.now().minus(retention)));
+        log.info("Deleted {} processed Stripe events", deleted);
+    }
+
+    private void process(String eventId) {
+        StripeWebhookEvent record = stripeWebhookEventRepository.findById(eventId).orElse(null);
+        if (record == null || record.getStatus() != StripeWebhookEventStatus.RECEIVED) {
+            return;
+        }
+        Event event = StripeObject.deserializeStripeObject(record.getPayload(), Event.class, ApiResource.getGlobalResponseGetter());
+        OutboxEventType outcome = CHECKOUT_COMPLETED.equals(event.getType())
+                ? OutboxEventType.PAYMENT_SUCCESS
+                : OutboxEventType.PAYMENT_FAILURE;
+        SuccessfulPaymentEvent payment;
+        try {
+            payment = outcome == OutboxEventType.PAYMENT_SUCCESS ? completedPayment(event) : failedPayment(event);
+        } catch (StripeException e) {
+            recordFailedLookup(eventId, event.getType(), e);
+            return;
+        }
+        if (payment == null) {
+            log.warn("Stripe event {} ({}) does not belong to an order", eventId, event.getType());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (stripeWebhookEventRepository.markProcessed(eventId, LocalDateTime.now()) == 1 && payment != null) {
+                // dated from the webhook, so the consumer can time webhook to status update
+                outboxService.enqueue(outcome, payment.getOrderId(), payment, record.getReceivedAt());
+            }
+        });
+    }
+
+    // backs off like the outbox relay; the sweeper picks the event up again once it is due
+    private void recordFailedLookup(String eventId, String type, StripeException e) {
+        transactionTemplate.executeWithoutResult(status -> stripeWebhookEventRepository.findById(eventId)
+                .filter(record -> record.getStatus() == StripeWebhookEventStatus.RECEIVED)
+                .ifPresent(record -> {
+                    int attempts = record.getAttempts() + 1;
+                    record.setAttempts(attempts);
+                    record.setLastError(abbreviate(e.getMessage()));
+                    if (attempts >= maxAttempts || isPermanent(e)) {
+                        record.setStatus(StripeWebhookEventStatus.FAILED);
+                        record.setProcessedAt(LocalDateTime.now());
+                        log.error("Giving up on Stripe event {} ({}) after {} attempts, its order needs a manual review",
+                                eventId, type, attempts, e);
+                        return;
+                    }
+                    Duration backoff = staleAfter.multipliedBy(1L << Math.min(attempts - 1, 16));
+                    record.setNextAttemptAt(LocalDateTime.now().plus(backoff.compareTo(MAX_BACKOFF) < 0 ? backoff : MAX_BACKOFF));
+                    log.warn("Could not resolve the order of Stripe event {} ({}), attempt {}: {}",
+                            eventId, type, attempts, e.getMessage());
+                }));
+    }
+
+    // a 4xx other than throttling, e.g. a deleted session, will not succeed on retry
+    private boolean isPermanent(StripeException e) {
+        Integer status = e.getStatusCode();
+        return status != null && status >= 400 && status < 500 && status != 429;
+    }
+
+    private String abbreviate(String message) {
+        if (message == null || message.length() <= 1000) {
+            return message;
+        }
+        return message.substring(0, 1000);
+    }
+
+    private SuccessfulPaymentEvent completedPayment(Event event) {
+        Session session = event.getDataObjectDeserializer().getObject()
+                .filter(Session.class::isInstance)
+                .map(Session.class::cast)
+                .orElse(null);
+        if (session == null) {
+            return null;
+        }
+        return payment(session.getMetadata(), chargeId(session));
+    }
+
+    private SuccessfulPaymentEvent failedPayment(Event event) throws StripeException {
+        PaymentIntent paymentIntent = event.getDataObjectDeserializer().getObject()
+                .filter(PaymentIntent.class::isInstance)
+                .map(PaymentIntent.class::cast)
+                .orElse(null);
+        if (paymentIntent == null) {
+            return null;
+        }
+        SuccessfulPaymentEvent payment = payment(paymentIntent.getMetadata(), null);
+        if (payment != null) {
+            return payment;
+        }
+        SessionListParams listParams = SessionListParams.builder()
+                .setPaymentIntent(paymentIntent.getId())
+                .setLimit(1L)
+                .build();
+        List<Session> sessions = stripeApiMetrics.record("checkout.session.list", () -> Session.list(listParams)).getData();
+        return sessions.isEmpty() ? null : payment(sessions.get(0).getMetadata(), null);
+    }
+
+    // null when the metadata does not name an order, e.g. a payment that did not start at our checkout
+    private SuccessfulPaymentEvent payment(Map<String, String> metadata, String paymentTransactionId) {
+        if (metadata == null || metadata.get("orderId") == null || metadata.get("userId") == null) {
+            return null;
+        }
+        return SuccessfulPaymentEvent.builder()
+                .userId(Long.parseLong(metadata.get("userId")))
+                .orderId(Long.parseLong(metadata.get("orderId")))
+                .paymentTransactionId(paymentTransactionId)
+                .build();
+    }
+
+    // the charge id is informational; a failed lookup still reports the payment
+    private String chargeId(Session session) {
+        try {
+            PaymentIntentRetrieveParams retrieveParams = PaymentIntentRetrieveParams.builder()
+                    .addExpand("latest_charge")
+                    .build();
+            PaymentIntent paymentIntent = stripeApiMetrics.record("payment_intent.retrieve",
+                    () -> PaymentIntent.retrieve(session.getPaymentIntent(), retrieveParams, null));
+            Charge charge = paymentIntent.getLatestChargeObject();
+            if (charge == null) {
+                log.warn("No charge found for PaymentIntent {}", session.getPaymentIntent());
+                return null;
+            }
+            return charge.getId();
+        } catch (StripeException e) {
+            log.warn("Could not look up the charge of PaymentIntent {}: {}", session.getPaymentIntent(), e.getMessage());
+            return null;
+        }
+    }
+}
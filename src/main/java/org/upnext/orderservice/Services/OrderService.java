@@ -1,12 +1,13 @@
 package org.upnext.orderservice.Services;
 
 import org.springframework.web.util.UriComponentsBuilder;
+import org.upnext.orderservice.Dtos.CheckoutStatusResponse;
+import org.upnext.orderservice.Dtos.OrderPageResponse;
 import org.upnext.orderservice.Models.Order;
 import org.upnext.sharedlibrary.Dtos.*;
 import org.upnext.sharedlibrary.Errors.Result;
 
 import java.net.URI;
-import java.util.List;
 import java.util.Optional;
 
 public interface OrderService {
@@ -14,12 +15,16 @@ public interface OrderService {
 
     Result<OrderDto> getOrderById(UserDto userDto, Long id);
 
-    Result<List<OrderDto>> getAllOrders();// for admins
+    Result<OrderPageResponse> getAllOrders(String cursor, Integer size);// for admins
 
-    Result<List<OrderDto>> getUserOrders(Long userId);
+    Result<OrderPageResponse> getUserOrders(Long userId, String cursor, Integer size);
 
     Result<OrderPaymentResponse> placeOrder(UserDto userDto, OrderPaymentRequest orderPaymentRequest, UriComponentsBuilder urb) throws Exception;
 
+    Result<CheckoutStatusResponse> placeOrderAsync(UserDto userDto, OrderPaymentRequest orderPaymentRequest, UriComponentsBuilder urb);
+
+    Result<CheckoutStatusResponse> getCheckoutStatus(UserDto userDto, Long id);
+
     Result<URI> updateOrderStatus(Long id, OrderStatusRequest orderStatusRequest, UriComponentsBuilder urb);
 
     Result<?> updateOrderStatus(Long id, OrderStatusRequest orderStatusRequest);
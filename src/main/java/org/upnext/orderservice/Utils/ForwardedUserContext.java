@@ -0,0 +1,49 @@
+package org.upnext.orderservice.Utils;
+
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.function.Supplier;
+
+/**
+ * The X-User header to forward to downstream services: the one of the current request,
+ * or, off the request thread, the one bound with {@link #runAs(String, Runnable)} or
+ * {@link #callAs(String, Supplier)}.
+ */
+public final class ForwardedUserContext {
+
+    public static final String HEADER = "X-User";
+
+    private static final ThreadLocal<String> USER_HEADER = new ThreadLocal<>();
+
+    private ForwardedUserContext() {
+    }
+
+    public static String current() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            return attributes.getRequest().getHeader(HEADER);
+        }
+        return USER_HEADER.get();
+    }
+
+    public static void runAs(String userHeader, Runnable action) {
+        callAs(userHeader, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public static <T> T callAs(String userHeader, Supplier<T> action) {
+        String previous = USER_HEADER.get();
+        USER_HEADER.set(userHeader);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                USER_HEADER.remove();
+            } else {
+                USER_HEADER.set(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.upnext.orderservice.Utils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Conversions between the Double prices the other services send and the integer cents
+ * stored on orders. Every amount is rounded once, HALF_UP, when it enters the order;
+ * totals are sums of cents, so the database, the API and Stripe agree to the cent.
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    public static long toCents(Double amount) {
+        return BigDecimal.valueOf(amount)
+                .setScale(2, RoundingMode.HALF_UP)
+                .movePointRight(2)
+                .longValueExact();
+    }
+
+    public static Double fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2).doubleValue();
+    }
+}
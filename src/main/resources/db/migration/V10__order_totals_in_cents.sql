@@ -0,0 +1,5 @@
+-- nullable until OrderTotalsBackfill has reached every order placed before this version
+alter table orders add column if not exists subtotal_cents bigint;
+alter table orders add column if not exists total_cents bigint;
+alter table orderitems add column if not exists unit_price_cents bigint;
+alter table orderitems add column if not exists line_total_cents bigint;
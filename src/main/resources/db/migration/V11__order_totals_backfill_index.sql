@@ -0,0 +1,16 @@
+-- drop what an interrupted build left invalid, as in V2
+do $$
+declare
+    invalid regclass;
+begin
+    for invalid in select indexrelid::regclass from pg_index
+                   where not indisvalid
+                     and indexrelid in (to_regclass('idx_orders_missing_totals'))
+    loop
+        execute format('drop index %s', invalid);
+    end loop;
+end $$;
+
+-- lets the backfill find the remaining orders without scanning; empty once it is done
+create index concurrently if not exists idx_orders_missing_totals
+    on orders (id) where total_cents is null;
@@ -0,0 +1,14 @@
+-- Order counters per placement day and status combination, kept current in the transaction
+-- that places or moves an order. Each combination is spread over a few shard rows so
+-- concurrent writers rarely wait on the same row; readers sum the shards.
+create table if not exists order_daily_stats
+(
+    day            date        not null,
+    order_status   varchar(32) not null,
+    payment_status varchar(32) not null,
+    payment_method varchar(32) not null,
+    shard          smallint    not null,
+    order_count    bigint      not null,
+    amount_cents   bigint      not null,
+    primary key (day, order_status, payment_status, payment_method, shard)
+);
@@ -0,0 +1,3 @@
+-- Optimistic locking for orders. A constant default is stored in the catalog, so the column
+-- is added without rewriting the table.
+alter table orders add column if not exists version bigint not null default 0;
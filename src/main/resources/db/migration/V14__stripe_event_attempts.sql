@@ -0,0 +1,5 @@
+-- Failed lookups of a Stripe event are retried with backoff and give up after a few attempts
+-- instead of being re-driven by every sweep. Constant defaults do not rewrite the table.
+alter table stripe_events add column if not exists attempts integer not null default 0;
+alter table stripe_events add column if not exists next_attempt_at timestamp(6);
+alter table stripe_events add column if not exists last_error varchar(1000);
@@ -0,0 +1,20 @@
+create table if not exists orders
+(
+    id                     bigint generated by default as identity primary key,
+    user_id                bigint       not null,
+    order_date             timestamp(6) not null,
+    delivery_date          timestamp(6) not null,
+    order_status           varchar(255) not null,
+    payment_status         varchar(255) not null,
+    payment_method         varchar(255) not null,
+    payment_transaction_id varchar(255) unique
+);
+
+create table if not exists orderitems
+(
+    id         bigint generated by default as identity primary key,
+    order_id   bigint    not null references orders (id),
+    product_id bigint    not null,
+    quantity   integer   not null,
+    price      float(53) not null
+);
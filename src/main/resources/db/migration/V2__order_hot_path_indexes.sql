@@ -0,0 +1,36 @@
+-- built concurrently so existing tables stay writable; Flyway runs these outside a transaction
+
+-- An interrupted concurrent build leaves an invalid index behind that "if not exists" would
+-- keep for good; it is dropped first so the rerun builds it again. A DO block runs in a
+-- transaction, so this is a plain drop and briefly locks the table.
+do $$
+declare
+    invalid regclass;
+begin
+    for invalid in select indexrelid::regclass from pg_index
+                   where not indisvalid
+                     and indexrelid in (to_regclass('idx_orders_user_date'),
+                                         to_regclass('idx_orders_date'),
+                                         to_regclass('idx_orders_status_date'),
+                                         to_regclass('idx_orderitems_order_id'))
+    loop
+        execute format('drop index %s', invalid);
+    end loop;
+end $$;
+
+-- per-user history keyset: where user_id = ? order by order_date desc, id desc
+-- (also serves every plain user_id lookup, so no separate user_id index)
+create index concurrently if not exists idx_orders_user_date
+    on orders (user_id, order_date desc, id desc);
+
+-- admin keyset listing: order by order_date desc, id desc
+create index concurrently if not exists idx_orders_date
+    on orders (order_date desc, id desc);
+
+-- export and admin filters: where order_status = ? and order_date between ...
+create index concurrently if not exists idx_orders_status_date
+    on orders (order_status, order_date);
+
+-- join key for every item load
+create index concurrently if not exists idx_orderitems_order_id
+    on orderitems (order_id);
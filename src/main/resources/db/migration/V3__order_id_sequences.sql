@@ -0,0 +1,7 @@
+create sequence if not exists orders_seq increment by 50;
+create sequence if not exists orderitems_seq increment by 50;
+
+-- Hibernate's pooled optimizer hands out (value - 49 .. value) for each nextval,
+-- so move both sequences one allocation past the ids issued by the old identity columns
+select setval('orders_seq', coalesce((select max(id) from orders), 0) + 50);
+select setval('orderitems_seq', coalesce((select max(id) from orderitems), 0) + 50);
@@ -0,0 +1 @@
+alter table orders add column if not exists stock_reservation_id varchar(64);
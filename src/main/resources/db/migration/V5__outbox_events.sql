@@ -0,0 +1,23 @@
+create sequence if not exists outbox_events_seq increment by 50;
+
+create table if not exists outbox_events
+(
+    id              bigint primary key,
+    type            varchar(32)  not null,
+    aggregate_id    bigint,
+    payload         text,
+    user_header     text,
+    status          varchar(16)  not null,
+    attempts        integer      not null,
+    created_at      timestamp(6) not null,
+    next_attempt_at timestamp(6) not null,
+    sent_at         timestamp(6),
+    last_error      varchar(1000)
+);
+
+-- the relay's polling query only ever looks at pending rows
+create index if not exists idx_outbox_events_due
+    on outbox_events (next_attempt_at, id) where status = 'PENDING';
+
+create index if not exists idx_outbox_events_pending_aggregate
+    on outbox_events (aggregate_id, id) where status = 'PENDING';
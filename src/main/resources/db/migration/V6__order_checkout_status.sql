@@ -0,0 +1,2 @@
+alter table orders add column if not exists checkout_status varchar(16);
+alter table orders add column if not exists checkout_url varchar(2048);
@@ -0,0 +1,16 @@
+-- drop what an interrupted build left invalid, as in V2
+do $$
+declare
+    invalid regclass;
+begin
+    for invalid in select indexrelid::regclass from pg_index
+                   where not indisvalid
+                     and indexrelid in (to_regclass('idx_orders_checkout_processing'))
+    loop
+        execute format('drop index %s', invalid);
+    end loop;
+end $$;
+
+-- the checkout sweeper only looks at orders still waiting for their payment session
+create index concurrently if not exists idx_orders_checkout_processing
+    on orders (order_date) where checkout_status = 'PROCESSING';
@@ -0,0 +1,17 @@
+create table if not exists idempotency_keys
+(
+    user_id         bigint       not null,
+    -- sha-256 of the client's Idempotency-Key, so any key length fits
+    key_hash        varchar(64)  not null,
+    request_hash    varchar(64)  not null,
+    status          varchar(16)  not null,
+    response_status integer,
+    content_type    varchar(100),
+    location        varchar(2048),
+    response_body   text,
+    created_at      timestamp(6) not null,
+    completed_at    timestamp(6),
+    primary key (user_id, key_hash)
+);
+
+create index if not exists idx_idempotency_keys_created_at on idempotency_keys (created_at);
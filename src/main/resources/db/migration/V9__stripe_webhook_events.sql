@@ -0,0 +1,13 @@
+-- inbox of verified Stripe webhook deliveries; the event id makes redeliveries a no-op
+create table if not exists stripe_events
+(
+    event_id     varchar(255) primary key,
+    type         varchar(100) not null,
+    payload      text         not null,
+    status       varchar(16)  not null,
+    received_at  timestamp(6) not null,
+    processed_at timestamp(6)
+);
+
+create index if not exists idx_stripe_events_received
+    on stripe_events (received_at) where status = 'RECEIVED';
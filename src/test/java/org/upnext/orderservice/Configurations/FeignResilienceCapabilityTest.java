@@ -0,0 +1,139 @@
+package org.upnext.orderservice.Configurations;
+
+import feign.Client;
+import feign.Request;
+import feign.RequestTemplate;
+import feign.Response;
+import feign.Target;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.upnext.orderservice.Clients.ProductClient;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FeignResilienceCapabilityTest {
+
+    private static final String CLIENT = "product-service";
+
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+    private SimpleMeterRegistry meterRegistry;
+    private FeignResilienceCapability capability;
+
+    @BeforeEach
+    void setUp() {
+        circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .waitDurationInOpenState(Duration.ofMinutes(1))
+                .build());
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(1)
+                .maxWaitDuration(Duration.ZERO)
+                .build());
+        meterRegistry = new SimpleMeterRegistry();
+        capability = new FeignResilienceCapability(circuitBreakerRegistry, bulkheadRegistry, meterRegistry);
+    }
+
+    @Test
+    void serverErrorsAndTimeoutsOpenTheBreaker() throws IOException {
+        Client client = capability.enrich((request, options) -> respond(request, 503));
+        Client timingOut = capability.enrich((request, options) -> {
+            throw new SocketTimeoutException("Read timed out");
+        });
+
+        client.execute(request(), options());
+        client.execute(request(), options());
+        assertThatThrownBy(() -> timingOut.execute(request(), options())).isInstanceOf(SocketTimeoutException.class);
+        assertThatThrownBy(() -> timingOut.execute(request(), options())).isInstanceOf(SocketTimeoutException.class);
+
+        assertThat(breaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> client.execute(request(), options())).isInstanceOf(CallNotPermittedException.class);
+        assertThat(rejections("circuit_open")).isEqualTo(1);
+    }
+
+    @Test
+    void clientErrorsDoNotCountAgainstTheBreaker() throws IOException {
+        Client client = capability.enrich((request, options) -> respond(request, 404));
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(client.execute(request(), options()).status()).isEqualTo(404);
+        }
+
+        assertThat(breaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker().getMetrics().getNumberOfFailedCalls()).isZero();
+    }
+
+    @Test
+    void bulkheadRejectsCallsBeyondTheLimit() throws Exception {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Client client = capability.enrich((request, options) -> {
+            inFlight.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return respond(request, 200);
+        });
+
+        try (ExecutorService executor = Executors.newSingleThreadExecutor()) {
+            Future<Response> first = executor.submit(() -> client.execute(request(), options()));
+            inFlight.await();
+
+            assertThatThrownBy(() -> client.execute(request(), options())).isInstanceOf(BulkheadFullException.class);
+
+            release.countDown();
+            assertThat(first.get().status()).isEqualTo(200);
+        }
+        assertThat(client.execute(request(), options()).status()).isEqualTo(200);
+        assertThat(rejections("bulkhead")).isEqualTo(1);
+    }
+
+    private CircuitBreaker breaker() {
+        return circuitBreakerRegistry.circuitBreaker(CLIENT);
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.counter("feign.client.rejections", "clientName", CLIENT, "reason", reason).count();
+    }
+
+    private static Request request() {
+        RequestTemplate template = new RequestTemplate();
+        template.feignTarget(new Target.HardCodedTarget<>(ProductClient.class, CLIENT, "http://" + CLIENT));
+        return Request.create(Request.HttpMethod.GET, "http://" + CLIENT + "/products/1", Map.of(), null,
+                StandardCharsets.UTF_8, template);
+    }
+
+    private static Request.Options options() {
+        return new Request.Options();
+    }
+
+    private static Response respond(Request request, int status) {
+        return Response.builder()
+                .request(request)
+                .status(status)
+                .headers(Map.of())
+                .build();
+    }
+}
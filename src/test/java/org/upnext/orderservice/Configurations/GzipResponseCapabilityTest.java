@@ -0,0 +1,112 @@
+package org.upnext.orderservice.Configurations;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import feign.Feign;
+import feign.FeignException;
+import feign.codec.Decoder;
+import feign.http2client.Http2Client;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
+import org.upnext.orderservice.Clients.ProductClient;
+import org.upnext.sharedlibrary.Dtos.ProductDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * product-service stand-in that gzips its responses whenever the request accepts it, called
+ * through the java.net.http transport, which hands the body over still compressed.
+ */
+class GzipResponseCapabilityTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private HttpServer server;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/products", exchange -> {
+            byte[] body = "[{\"id\":1},{\"id\":2}]".getBytes(StandardCharsets.UTF_8);
+            String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+            if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                body = gzip(body);
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void gzipResponsesAreDecodedOnTheHttp2Transport() {
+        ProductClient client = client(true, true);
+
+        assertThat(client.getProducts(List.of(1L, 2L)))
+                .extracting(ProductDto::getId)
+                .containsExactly(1L, 2L);
+    }
+
+    @Test
+    void uncompressedResponsesPassThrough() {
+        ProductClient client = client(false, true);
+
+        assertThat(client.getProducts(List.of(1L, 2L))).hasSize(2);
+    }
+
+    @Test
+    void withoutTheCapabilityTheCompressedBodyReachesTheJsonDecoder() {
+        ProductClient client = client(true, false);
+
+        assertThatThrownBy(() -> client.getProducts(List.of(1L, 2L))).isInstanceOf(FeignException.class);
+    }
+
+    // what the Spring context builds with compression.response.enabled and FEIGN_HTTP2_ENABLED
+    private ProductClient client(boolean acceptGzip, boolean withCapability) {
+        Feign.Builder builder = Feign.builder()
+                .client(new Http2Client())
+                .contract(new SpringMvcContract())
+                .decoder(json());
+        if (acceptGzip) {
+            builder.requestInterceptor(template -> template.header("Accept-Encoding", "gzip, deflate"));
+        }
+        if (withCapability) {
+            builder.addCapability(new GzipResponseCapability());
+        }
+        return builder.target(ProductClient.class, "http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    private static Decoder json() {
+        return (response, type) -> OBJECT_MAPPER.readValue(response.body().asInputStream(), OBJECT_MAPPER.constructType(type));
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body);
+        }
+        return bytes.toByteArray();
+    }
+}
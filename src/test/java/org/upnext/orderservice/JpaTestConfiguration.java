@@ -0,0 +1,23 @@
+package org.upnext.orderservice;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@TestConfiguration(proxyBeanMethods = false)
+public class JpaTestConfiguration {
+
+    @Bean
+    Statistics hibernateStatistics(EntityManagerFactory entityManagerFactory) {
+        return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Bean
+    OrderFixtures orderFixtures(EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        return new OrderFixtures(entityManager, transactionManager);
+    }
+}
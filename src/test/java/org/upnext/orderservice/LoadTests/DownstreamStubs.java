@@ -0,0 +1,207 @@
+package org.upnext.orderservice.LoadTests;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Local stand-ins for cart-service, product-service and the Stripe API on one HTTP server,
+ * under /cart, /product and /stripe. Every response waits the configured latency first and
+ * fails with a 503 at the configured rate, separately per downstream:
+ * <pre>
+ *   -Dload.cart.latency-ms=40 -Dload.cart.error-rate=0.01
+ *   -Dload.product.latency-ms=20
+ *   -Dload.stripe.latency-ms=250 -Dload.stripe.error-rate=0.005
+ * </pre>
+ * The bodies carry only the fields order-service reads.
+ */
+class DownstreamStubs implements AutoCloseable {
+
+    private static final int CART_ITEMS = 3;
+
+    private final HttpServer server;
+    private final Map<String, AtomicLong> calls = new ConcurrentHashMap<>();
+    private final AtomicLong injectedErrors = new AtomicLong();
+    private final AtomicLong sessions = new AtomicLong();
+
+    DownstreamStubs() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/cart", new Stub("cart", this::cart));
+        server.createContext("/product", new Stub("product", this::product));
+        server.createContext("/stripe", new Stub("stripe", this::stripe));
+        server.start();
+    }
+
+    String cartUrl() {
+        return baseUrl() + "/cart";
+    }
+
+    String productUrl() {
+        return baseUrl() + "/product";
+    }
+
+    String stripeUrl() {
+        return baseUrl() + "/stripe";
+    }
+
+    Map<String, Long> calls() {
+        return calls.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().get()));
+    }
+
+    long injectedErrors() {
+        return injectedErrors.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    private Response cart(String method, String path, String query) {
+        if ("GET".equals(method) && path.equals("/carts/me")) {
+            StringBuilder json = new StringBuilder("{\"items\":[");
+            for (int i = 0; i < CART_ITEMS; i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append(cartItemJson(ThreadLocalRandom.current().nextLong(1, 1000), i + 1));
+            }
+            return Response.ok(json.append("]}").toString());
+        }
+        return Response.EMPTY;
+    }
+
+    private Response product(String method, String path, String query) {
+        if ("GET".equals(method) && path.startsWith("/products/")) {
+            return Response.ok(productJson(Long.parseLong(path.substring("/products/".length()))));
+        }
+        if ("GET".equals(method) && path.equals("/products") && query != null) {
+            String products = Arrays.stream(query.split("&"))
+                    .filter(parameter -> parameter.startsWith("ids="))
+                    .flatMap(parameter -> Arrays.stream(parameter.substring("ids=".length()).split(",|%2C")))
+                    .map(id -> productJson(Long.parseLong(id)))
+                    .collect(Collectors.joining(",", "[", "]"));
+            return Response.ok(products);
+        }
+        return Response.EMPTY;
+    }
+
+    private Response stripe(String method, String path, String query) {
+        if ("POST".equals(method) && path.equals("/v1/checkout/sessions")) {
+            String id = "cs_test_load_" + sessions.incrementAndGet();
+            return Response.ok("{\"id\":\"" + id + "\",\"object\":\"checkout.session\",\"status\":\"open\"," +
+                    "\"url\":\"https://checkout.stripe.test/pay/" + id + "\"}");
+        }
+        if ("GET".equals(method) && path.startsWith("/v1/payment_intents/")) {
+            String id = path.substring("/v1/payment_intents/".length());
+            return Response.ok("{\"id\":\"" + id + "\",\"object\":\"payment_intent\",\"status\":\"succeeded\"," +
+                    "\"latest_charge\":{\"id\":\"ch_" + id + "\",\"object\":\"charge\"}}");
+        }
+        return Response.notFound();
+    }
+
+    private static String cartItemJson(long productId, int quantity) {
+        return "{\"quantity\":" + quantity + ",\"product\":" + productJson(productId) + "}";
+    }
+
+    private static String productJson(long productId) {
+        return "{\"id\":" + productId + ",\"name\":\"Product " + productId + "\",\"price\":" + (4.99 + productId % 50) +
+                ",\"stock\":1000000}";
+    }
+
+    // numeric and generated segments collapse so the call counts group by endpoint
+    private static String template(String path) {
+        return Arrays.stream(path.split("/"))
+                .map(segment -> segment.matches("\\d+|[0-9a-f-]{36}|(pi|cs)_\\w+") ? "{id}" : segment)
+                .collect(Collectors.joining("/"));
+    }
+
+    private static long latencyMillis(String downstream) {
+        return Long.getLong("load." + downstream + ".latency-ms", 0);
+    }
+
+    private static double errorRate(String downstream) {
+        return Double.parseDouble(System.getProperty("load." + downstream + ".error-rate", "0"));
+    }
+
+    private record Response(int status, String body) {
+
+        static final Response EMPTY = new Response(204, null);
+
+        static Response ok(String body) {
+            return new Response(200, body);
+        }
+
+        static Response notFound() {
+            return new Response(404, "{\"error\":{\"message\":\"not stubbed\"}}");
+        }
+    }
+
+    @FunctionalInterface
+    private interface Route {
+        Response handle(String method, String path, String query);
+    }
+
+    private class Stub implements HttpHandler {
+
+        private final String name;
+        private final Route route;
+        private final Duration latency;
+        private final double errorRate;
+
+        Stub(String name, Route route) {
+            this.name = name;
+            this.route = route;
+            this.latency = Duration.ofMillis(latencyMillis(name));
+            this.errorRate = errorRate(name);
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try (exchange) {
+                exchange.getRequestBody().readAllBytes();
+                String path = exchange.getRequestURI().getPath().substring(("/" + name).length());
+                calls.computeIfAbsent(name + " " + exchange.getRequestMethod() + " " + template(path), key -> new AtomicLong())
+                        .incrementAndGet();
+                if (!latency.isZero()) {
+                    Thread.sleep(latency);
+                }
+                Response response = ThreadLocalRandom.current().nextDouble() < errorRate
+                        ? injectedError()
+                        : route.handle(exchange.getRequestMethod(), path, exchange.getRequestURI().getRawQuery());
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                if (response.body() == null) {
+                    exchange.sendResponseHeaders(response.status(), -1);
+                    return;
+                }
+                byte[] body = response.body().getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(response.status(), body.length);
+                exchange.getResponseBody().write(body);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private Response injectedError() {
+            injectedErrors.incrementAndGet();
+            return new Response(503, "{\"error\":{\"message\":\"injected by the load test\"}}");
+        }
+    }
+}
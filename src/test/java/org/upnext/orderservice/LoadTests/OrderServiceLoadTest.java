@@ -0,0 +1,370 @@
+package org.upnext.orderservice.LoadTests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stripe.Stripe;
+import com.stripe.net.Webhook;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.RabbitMQContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import org.upnext.orderservice.TestcontainersConfiguration;
+import org.upnext.sharedlibrary.Dtos.UserDto;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives every OrderController endpoint and the Stripe webhook against the whole service:
+ * Postgres and RabbitMQ in containers, cart-service, product-service and the Stripe API
+ * replaced by {@link DownstreamStubs}. Each virtual user places an order, reads it back,
+ * pays it through a signed checkout.session.completed webhook and places and cancels an
+ * asynchronous one; every tenth iteration also runs the admin endpoints. The time from
+ * the webhook request until the order reads CONFIRMED is measured by a poller that checks
+ * every {@value #CONFIRMATION_POLL_MS} ms, which bounds the resolution of that figure.
+ * <p>
+ * Prints throughput and p50/p99/p999 per endpoint and writes them to
+ * target/load-test-report.json. Tagged "load" and skipped by the default build:
+ * <pre>
+ *   mvn test -Pload-test -Dtest=OrderServiceLoadTest -Dload.users=64 -Dload.duration-seconds=120 \
+ *       -Dload.stripe.latency-ms=250 -Dload.cart.error-rate=0.01
+ * </pre>
+ * See {@link DownstreamStubs} for the downstream latency and error settings.
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "eureka.client.enabled=false",
+        "spring.cloud.discovery.enabled=false",
+        "stripe.api.secretkey=sk_test_load",
+        "stripe.webhook.secret=" + OrderServiceLoadTest.WEBHOOK_SECRET
+})
+@Import({TestcontainersConfiguration.class, OrderServiceLoadTest.BrokerConfiguration.class})
+@Testcontainers(disabledWithoutDocker = true)
+class OrderServiceLoadTest {
+
+    static final String WEBHOOK_SECRET = "whsec_load_test";
+    private static final long CONFIRMATION_POLL_MS = 20;
+
+    private static final int USERS = Integer.getInteger("load.users", 32);
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 15));
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.duration-seconds", 60));
+    private static final Duration CONFIRMATION_TIMEOUT = Duration.ofSeconds(30);
+    private static final Path REPORT = Path.of(System.getProperty("load.report", "target/load-test-report.json"));
+    private static final long ADMIN_ID = 1L;
+    private static final long FIRST_USER_ID = 1_000_000L;
+
+    private static final String WEBHOOK_TO_CONFIRMED = "webhook -> CONFIRMED";
+
+    private static DownstreamStubs stubs;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final AtomicLong webhookEvents = new AtomicLong();
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class BrokerConfiguration {
+
+        @Bean
+        @ServiceConnection
+        RabbitMQContainer rabbitContainer() {
+            return new RabbitMQContainer(DockerImageName.parse("rabbitmq:3.13-alpine"));
+        }
+    }
+
+    @DynamicPropertySource
+    static void downstreams(DynamicPropertyRegistry registry) {
+        try {
+            stubs = new DownstreamStubs();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        registry.add("clients.cart.url", stubs::cartUrl);
+        registry.add("clients.product.url", stubs::productUrl);
+        registry.add("stripe.api.base", stubs::stripeUrl);
+    }
+
+    @AfterAll
+    static void stopDownstreams() {
+        stubs.close();
+        Stripe.overrideApiBase(Stripe.LIVE_API_BASE);
+    }
+
+    @Test
+    void ordersAndPaymentsUnderLoad() throws Exception {
+        run(WARMUP, new Measurements());
+
+        Measurements measurements = new Measurements();
+        run(DURATION, measurements);
+
+        Map<String, Map<String, Object>> endpoints = measurements.summary(DURATION);
+        print(endpoints);
+        write(endpoints);
+
+        if (stubs.injectedErrors() == 0) {
+            assertThat(endpoints).allSatisfy((endpoint, summary) ->
+                    assertThat(summary.get("errors")).as(endpoint).isEqualTo(0L));
+        }
+        assertThat(endpoints.get(WEBHOOK_TO_CONFIRMED).get("count")).isNotEqualTo(0L);
+    }
+
+    private void run(Duration duration, Measurements measurements) throws Exception {
+        long deadline = System.nanoTime() + duration.toNanos();
+        LocalDateTime startedAt = LocalDateTime.now();
+        try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                long userId = FIRST_USER_ID + i;
+                running.add(users.submit(() -> {
+                    String user = userHeader(userId, "USER");
+                    String admin = userHeader(ADMIN_ID, "ADMIN");
+                    for (int iteration = 0; System.nanoTime() < deadline; iteration++) {
+                        iterate(measurements, userId, user, admin, iteration, startedAt);
+                    }
+                    return null;
+                }));
+            }
+            Thread poller = Thread.ofVirtual().start(() -> measurements.pollConfirmations(deadline));
+            for (Future<?> user : running) {
+                user.get();
+            }
+            poller.join();
+        }
+    }
+
+    private void iterate(Measurements measurements, long userId, String user, String admin, int iteration,
+                         LocalDateTime startedAt) throws Exception {
+        HttpResponse<String> placed = measurements.call("POST /orders/me/prepare", request("/orders/me/prepare", user)
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .POST(json("{}")));
+        if (placed.statusCode() != 201) {
+            return;
+        }
+        long orderId = objectMapper.readTree(placed.body()).path("orderId").asLong();
+
+        measurements.call("GET /orders/{id}", request("/orders/" + orderId, user).GET());
+        measurements.call("GET /orders/me", request("/orders/me", user).GET());
+
+        String payload = checkoutCompleted(orderId, userId);
+        long sentAt = System.nanoTime();
+        HttpResponse<String> webhook = measurements.call("POST /stripe/webhook", request("/stripe/webhook", null)
+                .header("Stripe-Signature", signature(payload))
+                .POST(json(payload)));
+        if (webhook.statusCode() == 200) {
+            measurements.awaitConfirmed(orderId, sentAt);
+        }
+
+        HttpResponse<String> placedAsync = measurements.call("POST /orders/me/prepare?async=true",
+                request("/orders/me/prepare?async=true", user)
+                        .header("Idempotency-Key", UUID.randomUUID().toString())
+                        .POST(json("{}")));
+        if (placedAsync.statusCode() != 202) {
+            return;
+        }
+        long asyncOrderId = objectMapper.readTree(placedAsync.body()).path("orderId").asLong();
+        measurements.call("GET /orders/{id}/checkout", request("/orders/" + asyncOrderId + "/checkout", user).GET());
+
+        if (iteration % 10 == 0) {
+            measurements.call("GET /orders", request("/orders", admin).GET());
+            measurements.call("GET /orders/user/{userId}", request("/orders/user/" + userId, admin).GET());
+            measurements.call("GET /orders/statistics", request("/orders/statistics", admin).GET());
+            measurements.call("PUT /orders/{id}", request("/orders/" + asyncOrderId, admin)
+                    .PUT(json("{\"orderStatus\":\"CONFIRMED\",\"paymentStatus\":\"PAID\"}")));
+        } else {
+            measurements.call("DELETE /orders/{id}", request("/orders/" + asyncOrderId, user).DELETE());
+        }
+        if (iteration % 50 == 0) {
+            measurements.call("GET /orders/export", request("/orders/export?from=" + startedAt, admin).GET());
+        }
+    }
+
+    private HttpRequest.Builder request(String path, String userHeader) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+                .timeout(Duration.ofSeconds(30));
+        if (userHeader != null) {
+            request.header("X-User", userHeader);
+        }
+        return request;
+    }
+
+    private static HttpRequest.BodyPublisher json(String body) {
+        return HttpRequest.BodyPublishers.ofString(body);
+    }
+
+    private String userHeader(long id, String role) throws IOException {
+        UserDto user = new UserDto();
+        user.setId(id);
+        user.setName("Load User " + id);
+        user.setEmail("load" + id + "@example.com");
+        user.setRole(List.of(role));
+        return Base64.getEncoder().encodeToString(objectMapper.writeValueAsBytes(user));
+    }
+
+    // the event as Stripe sends it, with only the fields StripeWebhookService reads
+    private String checkoutCompleted(long orderId, long userId) {
+        long event = webhookEvents.incrementAndGet();
+        return """
+                {"id":"evt_load_%d","object":"event","api_version":"%s","created":%d,"type":"checkout.session.completed",
+                "data":{"object":{"id":"cs_test_load_order_%d","object":"checkout.session","payment_intent":"pi_load_%d",
+                "metadata":{"orderId":"%d","userId":"%d"}}}}"""
+                .formatted(event, Stripe.API_VERSION, Instant.now().getEpochSecond(), orderId, orderId, orderId, userId);
+    }
+
+    private static String signature(String payload) throws Exception {
+        long timestamp = Instant.now().getEpochSecond();
+        return "t=" + timestamp + ",v1=" + Webhook.Util.computeHmacSha256(WEBHOOK_SECRET, timestamp + "." + payload);
+    }
+
+    private static void print(Map<String, Map<String, Object>> endpoints) {
+        System.out.printf("%d users for %d s, downstream calls %s, injected errors %d%n",
+                USERS, DURATION.toSeconds(), new TreeMap<>(stubs.calls()), stubs.injectedErrors());
+        System.out.printf("%-36s %8s %7s %9s %9s %9s %9s%n", "Endpoint", "Count", "Errors", "Req/s", "p50 ms", "p99 ms", "p999 ms");
+        endpoints.forEach((endpoint, summary) -> System.out.printf("%-36s %8d %7d %9.1f %9.2f %9.2f %9.2f%n", endpoint,
+                summary.get("count"), summary.get("errors"), summary.get("throughput"),
+                summary.get("p50"), summary.get("p99"), summary.get("p999")));
+    }
+
+    private void write(Map<String, Map<String, Object>> endpoints) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("users", USERS);
+        report.put("durationSeconds", DURATION.toSeconds());
+        report.put("downstreamCalls", new TreeMap<>(stubs.calls()));
+        report.put("injectedErrors", stubs.injectedErrors());
+        report.put("endpoints", endpoints);
+        Files.createDirectories(REPORT.toAbsolutePath().getParent());
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(REPORT.toFile(), report);
+        System.out.println("Load test report written to " + REPORT.toAbsolutePath());
+    }
+
+    /**
+     * Latencies and failures per endpoint, plus the orders whose webhook was acknowledged
+     * but which have not been seen CONFIRMED yet.
+     */
+    private class Measurements {
+
+        private final Map<String, ConcurrentLinkedQueue<Long>> latencies = new ConcurrentHashMap<>();
+        private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+        private final Map<Long, Long> unconfirmed = new ConcurrentHashMap<>();
+
+        HttpResponse<String> call(String endpoint, HttpRequest.Builder request) throws Exception {
+            long start = System.nanoTime();
+            HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            record(endpoint, System.nanoTime() - start, response.statusCode() / 100 == 2);
+            return response;
+        }
+
+        void awaitConfirmed(long orderId, long sentAt) {
+            unconfirmed.put(orderId, sentAt);
+        }
+
+        // one query per tick for all pending orders, so the poller adds no load per order; runs until
+        // the last acknowledged webhook has been confirmed or has timed out
+        void pollConfirmations(long deadline) {
+            while (System.nanoTime() < deadline || !unconfirmed.isEmpty()) {
+                if (System.nanoTime() > deadline + CONFIRMATION_TIMEOUT.toNanos()) {
+                    errors.computeIfAbsent(WEBHOOK_TO_CONFIRMED, key -> new AtomicLong()).addAndGet(unconfirmed.size());
+                    unconfirmed.clear();
+                    return;
+                }
+                Long[] pending = unconfirmed.keySet().toArray(Long[]::new);
+                if (pending.length > 0) {
+                    long now = System.nanoTime();
+                    jdbcTemplate.queryForList("select id from orders where order_status = 'CONFIRMED' and id = any(?)",
+                                    Long.class, (Object) pending)
+                            .forEach(orderId -> record(WEBHOOK_TO_CONFIRMED, now - unconfirmed.remove(orderId), true));
+                }
+                try {
+                    Thread.sleep(CONFIRMATION_POLL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        Map<String, Map<String, Object>> summary(Duration duration) {
+            Map<String, Map<String, Object>> endpoints = new TreeMap<>();
+            latencies.keySet().forEach(endpoint -> errors.putIfAbsent(endpoint, new AtomicLong()));
+            errors.forEach((endpoint, failed) -> {
+                long[] sorted = latencies.getOrDefault(endpoint, new ConcurrentLinkedQueue<>()).stream()
+                        .mapToLong(Long::longValue)
+                        .toArray();
+                Arrays.sort(sorted);
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("count", (long) sorted.length);
+                summary.put("errors", failed.get());
+                summary.put("throughput", sorted.length / (double) duration.toSeconds());
+                summary.put("p50", millis(percentile(sorted, 0.50)));
+                summary.put("p99", millis(percentile(sorted, 0.99)));
+                summary.put("p999", millis(percentile(sorted, 0.999)));
+                summary.put("max", millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1]));
+                endpoints.put(endpoint, summary);
+            });
+            return endpoints;
+        }
+
+        private void record(String endpoint, long nanos, boolean succeeded) {
+            if (succeeded) {
+                latencies.computeIfAbsent(endpoint, key -> new ConcurrentLinkedQueue<>()).add(nanos);
+            } else {
+                errors.computeIfAbsent(endpoint, key -> new AtomicLong()).incrementAndGet();
+            }
+        }
+
+        private static long percentile(long[] sorted, double percentile) {
+            return sorted.length == 0 ? 0 : sorted[Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1)];
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1_000_000.0;
+        }
+    }
+}
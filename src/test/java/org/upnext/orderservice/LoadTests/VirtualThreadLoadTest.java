@@ -0,0 +1,166 @@
+package org.upnext.orderservice.LoadTests;
+
+import com.sun.net.httpserver.HttpServer;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.embedded.TomcatVirtualThreadsWebServerFactoryCustomizer;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares how much concurrency the servlet container sustains at a fixed p99 when every
+ * request blocks on slow downstream calls, the way placeOrder waits on cart-service,
+ * product-service and Stripe. The same handler runs on Tomcat with its default platform
+ * thread pool and with the virtual-thread executor Boot installs for
+ * spring.threads.virtual.enabled=true.
+ * <p>
+ * Tagged "load" and skipped by the default build; run with {@code mvn test -Pload-test}.
+ */
+@Tag("load")
+class VirtualThreadLoadTest {
+
+    private static final Duration DOWNSTREAM_LATENCY = Duration.ofMillis(100);
+    private static final int DOWNSTREAM_CALLS = 3;
+    private static final Duration P99_TARGET = DOWNSTREAM_LATENCY.multipliedBy(DOWNSTREAM_CALLS * 2L);
+    private static final Duration STEP_DURATION = Duration.ofSeconds(5);
+    private static final int[] CONCURRENCY_STEPS = {50, 100, 200, 400, 800};
+
+    private static HttpServer downstream;
+
+    @BeforeAll
+    static void startDownstream() throws IOException {
+        System.setProperty("http.maxConnections", "1000");
+        downstream = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        downstream.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        downstream.createContext("/", exchange -> {
+            try {
+                Thread.sleep(DOWNSTREAM_LATENCY);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{}".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        downstream.start();
+    }
+
+    @AfterAll
+    static void stopDownstream() {
+        downstream.stop(0);
+    }
+
+    @Test
+    void virtualThreadsSustainMoreConcurrencyAtTheSameP99() throws Exception {
+        int platform = maxConcurrencyWithinTarget("platform", false);
+        int virtual = maxConcurrencyWithinTarget("virtual", true);
+
+        System.out.printf("max concurrency with p99 <= %d ms: platform=%d virtual=%d%n",
+                P99_TARGET.toMillis(), platform, virtual);
+        assertThat(virtual).isGreaterThan(platform);
+    }
+
+    private int maxConcurrencyWithinTarget(String label, boolean virtualThreads) throws Exception {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        if (virtualThreads) {
+            new TomcatVirtualThreadsWebServerFactoryCustomizer().customize(factory);
+        }
+        WebServer server = factory.getWebServer(context ->
+                context.addServlet("checkout", new DownstreamFanOutServlet()).addMapping("/checkout"));
+        server.start();
+        try {
+            URI uri = URI.create("http://127.0.0.1:" + server.getPort() + "/checkout");
+            int best = 0;
+            for (int concurrency : CONCURRENCY_STEPS) {
+                long[] latencies = drive(uri, concurrency);
+                long p99 = percentile(latencies, 0.99);
+                System.out.printf("%-8s concurrency=%4d requests=%6d throughput=%7.1f/s p99=%5d ms%n",
+                        label, concurrency, latencies.length,
+                        latencies.length / (double) STEP_DURATION.toSeconds(), p99);
+                if (p99 > P99_TARGET.toMillis()) {
+                    break;
+                }
+                best = concurrency;
+            }
+            return best;
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static long[] drive(URI uri, int concurrency) throws Exception {
+        long deadline = System.nanoTime() + STEP_DURATION.toNanos();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<Long>>> results = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                results.add(clients.submit(() -> {
+                    List<Long> latencies = new ArrayList<>();
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        call(uri);
+                        latencies.add(Duration.ofNanos(System.nanoTime() - start).toMillis());
+                    }
+                    return latencies;
+                }));
+            }
+            List<Long> all = new ArrayList<>();
+            for (Future<List<Long>> result : results) {
+                all.addAll(result.get());
+            }
+            return all.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    private static long percentile(long[] values, double percentile) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.max(0, (int) Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    private static void call(URI uri) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) uri.toURL().openConnection();
+        connection.setConnectTimeout(10_000);
+        connection.setReadTimeout(30_000);
+        try (InputStream body = connection.getInputStream()) {
+            body.readAllBytes();
+        }
+    }
+
+    /**
+     * Stands in for a checkout request: a few sequential blocking calls on the request thread,
+     * made with HttpURLConnection like the default Feign client.
+     */
+    private static class DownstreamFanOutServlet extends HttpServlet {
+
+        @Override
+        protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+            URI uri = URI.create("http://127.0.0.1:" + downstream.getAddress().getPort() + "/");
+            for (int i = 0; i < DOWNSTREAM_CALLS; i++) {
+                call(uri);
+            }
+            response.setContentType("application/json");
+            response.getWriter().write("{}");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.upnext.orderservice.Models;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.upnext.orderservice.Utils.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderTotalsTest {
+
+    @ParameterizedTest
+    @CsvSource({"19.99, 1999", "0.1, 10", "1.005, 101", "4.345, 435", "1234.5, 123450"})
+    void pricesRoundHalfUpToCents(double price, long cents) {
+        assertThat(Money.toCents(price)).isEqualTo(cents);
+    }
+
+    @Test
+    void orderTotalIsTheSumOfTheLineTotalsStripeCharges() {
+        Order order = new Order();
+        order.setItems(new ArrayList<>(List.of(item(0.1, 3), item(19.99, 7), item(4.345, 1))));
+
+        order.computeTotals();
+
+        long stripeAmount = order.getItems().stream()
+                .mapToLong(item -> item.getUnitPriceCents() * item.getQuantity())
+                .sum();
+        assertThat(order.getTotalCents()).isEqualTo(stripeAmount).isEqualTo(30 + 13993 + 435);
+        assertThat(order.getTotalCost()).isEqualTo(144.58);
+    }
+
+    private OrderItem item(double price, int quantity) {
+        OrderItem item = new OrderItem();
+        item.setPrice(price);
+        item.setQuantity(quantity);
+        return item;
+    }
+}
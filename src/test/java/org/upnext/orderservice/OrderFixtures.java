@@ -0,0 +1,70 @@
+package org.upnext.orderservice;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.Models.OrderItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Orders for the JPA tests. {@link #persist} joins the test's transaction when there is one
+ * and commits its own otherwise; either way the orders are flushed and the persistence
+ * context is cleared, so the test reads them back from the database or the second-level cache.
+ */
+public class OrderFixtures {
+
+    public static final double PRICE = 9.99;
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    OrderFixtures(EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // items for products 1..itemCount, one of each
+    public static Order order(Long userId, int itemCount, double price) {
+        Order order = new Order();
+        order.setUserId(userId);
+        List<OrderItem> items = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setProductId(i + 1L);
+            item.setQuantity(1);
+            item.setPrice(price);
+            items.add(item);
+        }
+        order.setItems(items);
+        return order;
+    }
+
+    public static List<Order> orders(Long userId, int count, int itemsPerOrder) {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            orders.add(order(userId, itemsPerOrder, PRICE));
+        }
+        return orders;
+    }
+
+    public List<Long> persist(List<Order> orders) {
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = new ArrayList<>();
+            for (Order order : orders) {
+                entityManager.persist(order);
+                ids.add(order.getId());
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return ids;
+        });
+    }
+
+    public List<Long> persistOrders(int count, int itemsPerOrder) {
+        return persist(orders(1L, count, itemsPerOrder));
+    }
+}
@@ -0,0 +1,96 @@
+package org.upnext.orderservice.Repositories;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationState;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.upnext.orderservice.PostgresJpaTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Migrates a fresh database with the db/migration scripts, the concurrently built indexes
+ * included, and runs the result through EXPLAIN for the queries on the order hot paths.
+ * Sequential scans are disabled so the planner has to show which index it would use
+ * even on the tiny test tables; a dropped or mismatched index turns into a failure here.
+ */
+@PostgresJpaTest
+class OrderIndexPlanTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Flyway flyway;
+
+    @BeforeEach
+    void disableSequentialScans() {
+        jdbcTemplate.execute("set local enable_seqscan = off");
+    }
+
+    @Test
+    void everyMigrationIsAppliedAndLeavesValidIndexes() {
+        assertThat(flyway.info().pending()).isEmpty();
+        assertThat(flyway.info().applied())
+                .isNotEmpty()
+                .allSatisfy(migration -> assertThat(migration.getState()).isEqualTo(MigrationState.SUCCESS));
+
+        // a failed or interrupted create index concurrently leaves an invalid index behind
+        Integer invalid = jdbcTemplate.queryForObject(
+                "select count(*) from pg_index where not indisvalid", Integer.class);
+        assertThat(invalid).isZero();
+    }
+
+    @Test
+    void userHistoryPageIsServedInIndexOrder() {
+        String plan = explain("select id from orders where user_id = 42 " +
+                "order by order_date desc, id desc limit 21");
+
+        assertThat(plan).contains("idx_orders_user_date").doesNotContain("Sort");
+    }
+
+    @Test
+    void userHistoryCursorPageIsServedInIndexOrder() {
+        String plan = explain("select id from orders where user_id = 42 " +
+                "and (order_date < timestamp '2025-01-01 00:00' or (order_date = timestamp '2025-01-01 00:00' and id < 100)) " +
+                "order by order_date desc, id desc limit 21");
+
+        assertThat(plan).contains("idx_orders_user_date").doesNotContain("Sort");
+    }
+
+    @Test
+    void adminPageIsServedInIndexOrder() {
+        String plan = explain("select id from orders order by order_date desc, id desc limit 21");
+
+        assertThat(plan).contains("idx_orders_date").doesNotContain("Sort");
+    }
+
+    @Test
+    void itemLoadUsesOrderIdIndex() {
+        String plan = explain("select * from orderitems where order_id in (1, 2, 3)");
+
+        assertThat(plan).contains("idx_orderitems_order_id").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void statusAndDateFilterUsesStatusIndex() {
+        String plan = explain("select id from orders where order_status = 'PENDING' " +
+                "and order_date >= timestamp '2025-01-01 00:00' and order_date < timestamp '2025-02-01 00:00'");
+
+        assertThat(plan).contains("idx_orders_status_date").doesNotContain("Seq Scan");
+    }
+
+    @Test
+    void checkoutSweepUsesPartialIndex() {
+        String plan = explain("select id from orders where checkout_status = 'PROCESSING' " +
+                "and order_date < timestamp '2025-01-01 00:00' order by order_date limit 100");
+
+        assertThat(plan).contains("idx_orders_checkout_processing").doesNotContain("Sort");
+    }
+
+    private String explain(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("explain " + sql, String.class));
+    }
+}
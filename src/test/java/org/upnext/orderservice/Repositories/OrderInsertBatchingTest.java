@@ -0,0 +1,44 @@
+package org.upnext.orderservice.Repositories;
+
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.OrderFixtures;
+import org.upnext.orderservice.PostgresJpaTest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Places orders the way placeOrder does (persist, attach the payment session id, commit)
+ * and counts the JDBC statements it takes. With IDENTITY ids this grew as cartSize + 1.
+ */
+@PostgresJpaTest
+class OrderInsertBatchingTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private Statistics statistics;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 30})
+    void placingAnOrderTakesAConstantNumberOfStatements(int cartSize) {
+        statistics.clear();
+
+        Order order = orderRepository.save(OrderFixtures.order(1L, cartSize, 4.5));
+        order.setPaymentTransactionId("cs_test_" + cartSize);
+        entityManager.flush();
+
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(cartSize + 1);
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+        // one batched insert per table plus at most one sequence call per table
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(4);
+    }
+}
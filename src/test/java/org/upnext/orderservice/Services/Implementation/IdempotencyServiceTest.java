@@ -0,0 +1,103 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.upnext.orderservice.Exceptions.IdempotencyKeyMismatchException;
+import org.upnext.orderservice.Exceptions.ProductStockException;
+import org.upnext.orderservice.PostgresJpaTest;
+import org.upnext.orderservice.Repositories.IdempotencyRecordRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@PostgresJpaTest
+@Import(IdempotencyService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyServiceTest {
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @AfterEach
+    void tearDown() {
+        idempotencyRecordRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentDuplicatesRunThePipelineOnce() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        List<Future<ResponseEntity<?>>> responses = new ArrayList<>();
+
+        try (ExecutorService clients = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                responses.add(clients.submit(() -> idempotencyService.execute(1L, "retry-storm", "prepare", Map.of("cart", 1),
+                        () -> {
+                            runs.incrementAndGet();
+                            Thread.sleep(300);
+                            return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("orderId", 42));
+                        })));
+            }
+            for (Future<ResponseEntity<?>> response : responses) {
+                assertThat(response.get().getStatusCode()).isEqualTo(HttpStatus.CREATED);
+                assertThat(String.valueOf(response.get().getBody())).contains("42");
+            }
+        }
+
+        assertThat(runs).hasValue(1);
+    }
+
+    @Test
+    void laterRetryIsReplayedFromTheStore() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        IdempotencyService.IdempotentAction action = () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("orderId", 7));
+        };
+
+        idempotencyService.execute(2L, "key", "prepare", Map.of("cart", 1), action);
+        ResponseEntity<?> replayed = idempotencyService.execute(2L, "key", "prepare", Map.of("cart", 1), action);
+
+        assertThat(runs).hasValue(1);
+        assertThat(replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(idempotencyRecordRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void reusingAKeyForAnotherRequestIsRejected() throws Exception {
+        idempotencyService.execute(3L, "key", "prepare", Map.of("cart", 1), () -> ResponseEntity.ok("first"));
+
+        assertThatThrownBy(() -> idempotencyService.execute(3L, "key", "prepare", Map.of("cart", 2), () -> ResponseEntity.ok("second")))
+                .isInstanceOf(IdempotencyKeyMismatchException.class);
+    }
+
+    @Test
+    void failedRequestReleasesItsKey() throws Exception {
+        assertThatThrownBy(() -> idempotencyService.execute(4L, "key", "prepare", Map.of("cart", 1), () -> {
+            throw new ProductStockException("InSufficient Stock");
+        })).isInstanceOf(ProductStockException.class);
+
+        ResponseEntity<?> retried = idempotencyService.execute(4L, "key", "prepare", Map.of("cart", 1), () -> ResponseEntity.ok("placed"));
+
+        assertThat(retried.getBody()).isEqualTo("placed");
+    }
+}
@@ -0,0 +1,119 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Slice;
+import org.upnext.orderservice.Mappers.OrderMapper;
+import org.upnext.orderservice.Mappers.OrderMapperImpl;
+import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.OrderFixtures;
+import org.upnext.orderservice.PostgresJpaTest;
+import org.upnext.orderservice.Repositories.OrderRepository;
+import org.upnext.orderservice.Utils.OrderCursor;
+import org.upnext.sharedlibrary.Dtos.OrderDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@PostgresJpaTest
+@Import({OrderQueryService.class, OrderMapperImpl.class})
+class OrderQueryServiceTest {
+
+    @Autowired
+    private OrderQueryService orderQueryService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OrderFixtures orderFixtures;
+
+    @Autowired
+    private Statistics statistics;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 40})
+    void allOrdersPageRunsTwoQueriesWhateverTheNumberOfOrders(int orderCount) {
+        persistOrders(1L, orderCount, 3);
+        statistics.clear();
+
+        List<OrderDto> orders = map(orderQueryService.findPage(null, null, 50));
+
+        assertThat(orders).hasSize(orderCount);
+        assertThat(orders).allSatisfy(order -> assertThat(order.getOrderItems()).hasSize(3));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 40})
+    void userOrdersPageRunsTwoQueriesWhateverTheNumberOfOrders(int orderCount) {
+        persistOrders(1L, orderCount, 2);
+        persistOrders(2L, 5, 2);
+        statistics.clear();
+
+        List<OrderDto> orders = map(orderQueryService.findPage(1L, null, 50));
+
+        assertThat(orders).hasSize(orderCount);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void everyCursorPageRunsTwoQueriesAndPagesDoNotOverlap() {
+        persistOrders(1L, 23, 2);
+
+        List<Long> seen = new ArrayList<>();
+        OrderCursor cursor = null;
+        Slice<Order> page;
+        do {
+            statistics.clear();
+            page = orderQueryService.findPage(1L, cursor, 5);
+            map(page);
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+            page.forEach(order -> seen.add(order.getId()));
+            cursor = page.hasNext() ? OrderCursor.of(page.getContent().get(page.getNumberOfElements() - 1)) : null;
+        } while (cursor != null);
+
+        assertThat(seen).hasSize(23).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void uncachedOrderByIdLoadsAllItemsInOneQuery() {
+        persistOrders(1L, 1, 4);
+        Long id = orderRepository.findAll().get(0).getId();
+        entityManager.clear();
+        entityManagerFactory.getCache().evictAll();
+        statistics.clear();
+
+        OrderDto order = orderMapper.toOrderDto(orderQueryService.findWithItems(id).orElseThrow());
+
+        // the order, then its items; the cached case is in OrderSecondLevelCacheTest
+        assertThat(order.getOrderItems()).hasSize(4);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    private List<OrderDto> map(Slice<Order> page) {
+        return page.getContent().stream().map(orderMapper::toOrderDto).toList();
+    }
+
+    private void persistOrders(Long userId, int count, int itemsPerOrder) {
+        orderFixtures.persist(OrderFixtures.orders(userId, count, itemsPerOrder));
+    }
+}
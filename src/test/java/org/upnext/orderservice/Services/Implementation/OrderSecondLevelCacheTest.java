@@ -0,0 +1,231 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upnext.orderservice.Enums.CheckoutStatus;
+import org.upnext.orderservice.Mappers.OrderMapper;
+import org.upnext.orderservice.Mappers.OrderMapperImpl;
+import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.OrderFixtures;
+import org.upnext.orderservice.PostgresJpaTest;
+import org.upnext.orderservice.Repositories.OrderRepository;
+import org.upnext.sharedlibrary.Dtos.SuccessfulPaymentEvent;
+import org.upnext.sharedlibrary.Enums.OrderStatus;
+import org.upnext.sharedlibrary.Enums.PaymentStatus;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Orders and their items read through the second-level cache. Single-order reads are served
+ * from it; writes lock the row, read past it and are versioned. Every test commits, so the
+ * cache sees the same transaction boundaries as the service does.
+ */
+@PostgresJpaTest
+@Import({PaymentEventService.class, OutboxService.class, OrderQueryService.class, OrderMapperImpl.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderSecondLevelCacheTest {
+
+    @Autowired
+    private PaymentEventService paymentEventService;
+
+    @Autowired
+    private OrderQueryService orderQueryService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private OrderHistoryCache orderHistoryCache;
+
+    @MockitoBean
+    private OrderStatisticsService orderStatisticsService;
+
+    @Autowired
+    private OrderFixtures orderFixtures;
+
+    @Autowired
+    private Statistics statistics;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from outbox_events");
+        jdbcTemplate.update("delete from orderitems");
+        jdbcTemplate.update("delete from orders");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void orderAndItemsAreReadFromTheCacheAfterTheFirstLoad() {
+        Long id = placeOrders(1).get(0);
+        entityManagerFactory.getCache().evictAll();
+
+        statistics.clear();
+        assertThat(itemCount(id)).isEqualTo(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        statistics.clear();
+        assertThat(itemCount(id)).isEqualTo(2);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(4);
+    }
+
+    @Test
+    void singleOrderReadsCostNoStatementOnceCached() {
+        Long id = placeOrders(1).get(0);
+        entityManagerFactory.getCache().evictAll();
+
+        statistics.clear();
+        assertThat(orderQueryService.findWithItems(id).orElseThrow().getItems()).hasSize(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+        statistics.clear();
+        Order order = orderQueryService.findWithItems(id).orElseThrow();
+        assertThat(orderMapper.toOrderDto(order).getOrderItems()).hasSize(2);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void entityUpdatesAreVisibleThroughTheCache() {
+        Long id = placeOrders(1).get(0);
+        load(id);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = orderRepository.findById(id).orElseThrow();
+            order.setOrderStatus(OrderStatus.SHIPPED);
+        });
+
+        statistics.clear();
+        assertThat(load(id).getOrderStatus()).isEqualTo(OrderStatus.SHIPPED);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void rolledBackUpdatesNeverReachTheCache() {
+        Long id = placeOrders(1).get(0);
+        load(id);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            orderRepository.findById(id).orElseThrow().setOrderStatus(OrderStatus.SHIPPED);
+            orderRepository.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(load(id).getOrderStatus()).isEqualTo(OrderStatus.PENDING);
+    }
+
+    @Test
+    void rowsChangedBehindHibernateAreReadAgainOnceEvicted() {
+        Long id = placeOrders(1).get(0);
+        load(id);
+
+        jdbcTemplate.update("update orders set order_status = 'DELIVERED' where id = ?", id);
+        assertThat(load(id).getOrderStatus()).isEqualTo(OrderStatus.PENDING);
+
+        // what a broadcast from the instance that made the change does
+        entityManagerFactory.getCache().evict(Order.class, id);
+        assertThat(load(id).getOrderStatus()).isEqualTo(OrderStatus.DELIVERED);
+    }
+
+    @Test
+    void lockedReadsBypassTheCache() {
+        Long id = placeOrders(1).get(0);
+        load(id);
+        jdbcTemplate.update("update orders set checkout_status = 'FAILED' where id = ?", id);
+
+        CheckoutStatus locked = transactionTemplate.execute(status ->
+                orderRepository.findForUpdateById(id).orElseThrow().getCheckoutStatus());
+
+        assertThat(locked).isEqualTo(CheckoutStatus.FAILED);
+    }
+
+    @Test
+    void writeToAStaleCachedOrderFails() {
+        Long id = placeOrders(1).get(0);
+        load(id);
+        // another replica's write, which this replica's cache does not hear about
+        jdbcTemplate.update("update orders set order_status = 'DELIVERED', version = version + 1 where id = ?", id);
+
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status ->
+                orderRepository.findById(id).orElseThrow().setOrderStatus(OrderStatus.CANCELED)))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+        entityManagerFactory.getCache().evict(Order.class, id);
+        assertThat(load(id).getOrderStatus()).isEqualTo(OrderStatus.DELIVERED);
+    }
+
+    @Test
+    void paymentEventsReadOrdersPastTheCache() {
+        List<Long> ids = placeOrders(50);
+        ids.forEach(this::load);
+        Long delivered = ids.get(0);
+        jdbcTemplate.update("update orders set order_status = 'DELIVERED', version = version + 1 where id = ?", delivered);
+
+        statistics.clear();
+        Integer updated = transactionTemplate.execute(status -> paymentEventService.applySuccesses(events(ids)));
+
+        // one locked load and one update batch; the stale cached copy of the delivered order is not used
+        assertThat(updated).isEqualTo(49);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        entityManagerFactory.getCache().evictAll();
+        assertThat(load(delivered).getOrderStatus()).isEqualTo(OrderStatus.DELIVERED);
+        assertThat(ids.subList(1, ids.size())).allSatisfy(id -> {
+            Order order = load(id);
+            assertThat(order.getOrderStatus()).isEqualTo(OrderStatus.CONFIRMED);
+            assertThat(order.getPaymentStatus()).isEqualTo(PaymentStatus.PAID);
+        });
+    }
+
+    private Order load(Long id) {
+        return transactionTemplate.execute(status -> orderRepository.findById(id).orElseThrow());
+    }
+
+    private Integer itemCount(Long id) {
+        return transactionTemplate.execute(status -> orderRepository.findById(id).orElseThrow().getItems().size());
+    }
+
+    private List<SuccessfulPaymentEvent> events(List<Long> orderIds) {
+        return orderIds.stream()
+                .map(orderId -> SuccessfulPaymentEvent.builder().orderId(orderId).userId(1L).build())
+                .toList();
+    }
+
+    private List<Long> placeOrders(int count) {
+        return orderFixtures.persistOrders(count, 2);
+    }
+}
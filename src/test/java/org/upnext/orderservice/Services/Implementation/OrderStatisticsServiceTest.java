@@ -0,0 +1,194 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.upnext.orderservice.Dtos.OrderStatisticsResponse;
+import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.OrderFixtures;
+import org.upnext.orderservice.PostgresJpaTest;
+import org.upnext.orderservice.Repositories.OrderRepository;
+import org.upnext.sharedlibrary.Enums.OrderStatus;
+import org.upnext.sharedlibrary.Enums.PaymentMethod;
+import org.upnext.sharedlibrary.Enums.PaymentStatus;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@PostgresJpaTest
+@Import(OrderStatisticsService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderStatisticsServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private OrderStatisticsService orderStatisticsService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private OrderFixtures orderFixtures;
+
+    @Autowired
+    private Statistics statistics;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from order_daily_stats");
+        jdbcTemplate.update("delete from orderitems");
+        jdbcTemplate.update("delete from orders");
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void countersFollowPlacementAndTransitions() {
+        List<Long> ids = placeOrders(3, 12.5);
+        move(ids.subList(0, 2), OrderStatus.CONFIRMED, PaymentStatus.PAID);
+        move(ids.subList(1, 2), OrderStatus.CANCELED, PaymentStatus.CANCELED);
+
+        OrderStatisticsResponse response = today();
+
+        assertThat(response.getOrders()).isEqualTo(3);
+        assertThat(response.getRevenue()).isEqualTo(12.5);
+        assertThat(response.getByStatus()).containsOnlyKeys(OrderStatus.PENDING, OrderStatus.CONFIRMED, OrderStatus.CANCELED);
+        assertThat(response.getByStatus().get(OrderStatus.CONFIRMED).getOrders()).isEqualTo(1);
+        assertThat(response.getByPaymentStatus().get(PaymentStatus.PENDING).getAmount()).isEqualTo(12.5);
+        assertThat(response.getByPaymentMethod().get(PaymentMethod.CARD).getOrders()).isEqualTo(3);
+        assertThat(response.getDaily()).singleElement().satisfies(day -> {
+            assertThat(day.getDay()).isEqualTo(TODAY);
+            assertThat(day.getAmount()).isEqualTo(37.5);
+        });
+    }
+
+    @Test
+    void rolledBackChangesAreNotCounted() {
+        transactionTemplate.executeWithoutResult(status -> {
+            orderStatisticsService.recordPlaced(orderRepository.save(newOrder(9.99)));
+            status.setRollbackOnly();
+        });
+
+        assertThat(today().getOrders()).isZero();
+    }
+
+    @Test
+    void rebuildMatchesTheIncrementalCounters() {
+        List<Long> ids = placeOrders(20, 4.99);
+        move(ids.subList(0, 15), OrderStatus.CONFIRMED, PaymentStatus.PAID);
+        move(ids.subList(0, 5), OrderStatus.DELIVERED, PaymentStatus.PAID);
+        move(ids.subList(15, 18), OrderStatus.CANCELED, PaymentStatus.FAILED);
+        OrderStatisticsResponse incremental = today();
+
+        orderStatisticsService.rebuild();
+
+        assertThat(today()).isEqualTo(incremental);
+    }
+
+    @Test
+    void scheduledRebuildSkipsWhileAnotherReplicaRunsIt() throws SQLException {
+        placeOrders(3, 2.5);
+        jdbcTemplate.update("delete from order_daily_stats");
+
+        // another replica's rebuild, holding the lock until its transaction ends
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("select pg_advisory_xact_lock(hashtext('order_daily_stats_rebuild'))");
+            }
+            orderStatisticsService.scheduledRebuild();
+            assertThat(today().getOrders()).isZero();
+            connection.rollback();
+        }
+
+        orderStatisticsService.scheduledRebuild();
+        assertThat(today().getOrders()).isEqualTo(3);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 500})
+    void statisticsTakeOneQueryWhateverTheOrderVolume(int orderCount) {
+        List<Long> ids = placeOrders(orderCount, 1.0);
+        move(ids.subList(0, orderCount / 2), OrderStatus.CONFIRMED, PaymentStatus.PAID);
+
+        statistics.clear();
+        OrderStatisticsResponse response = today();
+
+        assertThat(response.getOrders()).isEqualTo(orderCount);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        // two status combinations, each spread over at most the configured 8 shards
+        assertThat(jdbcTemplate.queryForObject("select count(*) from order_daily_stats", Long.class)).isLessThanOrEqualTo(16);
+    }
+
+    private OrderStatisticsResponse today() {
+        return orderStatisticsService.getStatistics(TODAY, TODAY.plusDays(1)).getValue();
+    }
+
+    private void move(List<Long> ids, OrderStatus orderStatus, PaymentStatus paymentStatus) {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<Order> orders = orderRepository.findAllById(ids);
+            List<OrderStatisticsService.Bucket> before = orders.stream().map(OrderStatisticsService.Bucket::of).toList();
+            orders.forEach(order -> {
+                order.setOrderStatus(orderStatus);
+                order.setPaymentStatus(paymentStatus);
+            });
+            orderStatisticsService.recordMoved(orders, before);
+        });
+    }
+
+    // placed and counted in one transaction, as placeOrder does
+    private List<Long> placeOrders(int count, double price) {
+        return transactionTemplate.execute(status -> {
+            List<Order> orders = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                orders.add(newOrder(price));
+            }
+            List<Long> ids = orderFixtures.persist(orders);
+            orders.forEach(orderStatisticsService::recordPlaced);
+            return ids;
+        });
+    }
+
+    private Order newOrder(double price) {
+        Order order = OrderFixtures.order(1L, 1, price);
+        order.setPaymentMethod(PaymentMethod.CARD);
+        return order;
+    }
+}
@@ -0,0 +1,295 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import feign.FeignException;
+import feign.Request;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.upnext.orderservice.Clients.CartClient;
+import org.upnext.orderservice.Clients.ProductClient;
+import org.upnext.orderservice.Dtos.StockReservationItem;
+import org.upnext.orderservice.Dtos.StockReservationRequest;
+import org.upnext.orderservice.Enums.CheckoutStatus;
+import org.upnext.orderservice.Enums.OutboxEventStatus;
+import org.upnext.orderservice.Enums.OutboxEventType;
+import org.upnext.orderservice.Mappers.OrderMapperImpl;
+import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.Models.OutboxEvent;
+import org.upnext.orderservice.OrderFixtures;
+import org.upnext.orderservice.PostgresJpaTest;
+import org.upnext.orderservice.Repositories.OrderRepository;
+import org.upnext.orderservice.Repositories.OutboxEventRepository;
+import org.upnext.sharedlibrary.Enums.OrderStatus;
+import org.upnext.sharedlibrary.Enums.PaymentStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.upnext.orderservice.Configurations.PaymentRabbitMqConfig.OUTCOME_HEADER;
+import static org.upnext.orderservice.Configurations.PaymentRabbitMqConfig.PARTITIONED_EXCHANGE;
+import static org.upnext.orderservice.Configurations.PaymentRabbitMqConfig.partitionOf;
+
+/**
+ * The relay against the real outbox table: which rows a run claims, how a failed delivery
+ * is retried or given up on, and what giving up on a stock reservation does to its order.
+ * The downstream clients and the broker are mocks; every run commits.
+ */
+@PostgresJpaTest
+@Import({OutboxRelay.class, OutboxService.class, OrderMapperImpl.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@TestPropertySource(properties = "outbox.relay.max-attempts=3")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxRelayTest {
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderFixtures orderFixtures;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private ProductClient productClient;
+
+    @MockitoBean
+    private CartClient cartClient;
+
+    @MockitoBean
+    private StripePaymentService stripePaymentService;
+
+    @MockitoBean
+    private RabbitTemplate rabbitTemplate;
+
+    @MockitoBean
+    private OrderStatisticsService orderStatisticsService;
+
+    @MockitoBean
+    private OrderHistoryCache orderHistoryCache;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("delete from outbox_events");
+        jdbcTemplate.update("delete from orderitems");
+        jdbcTemplate.update("delete from orders");
+    }
+
+    @Test
+    void runClaimsOnlyTheOldestPendingEventOfEachOrder() {
+        Long reserve1 = enqueue(OutboxEventType.STOCK_RESERVE, 1L, reservation("r-1"));
+        Long clear1 = enqueue(OutboxEventType.CART_CLEAR, 1L, null);
+        Long reserve2 = enqueue(OutboxEventType.STOCK_RESERVE, 2L, reservation("r-2"));
+
+        outboxRelay.relay();
+
+        assertThat(status(reserve1)).isEqualTo(OutboxEventStatus.SENT);
+        assertThat(status(reserve2)).isEqualTo(OutboxEventStatus.SENT);
+        assertThat(status(clear1)).isEqualTo(OutboxEventStatus.PENDING);
+        verify(cartClient, never()).clearCart();
+
+        outboxRelay.relay();
+
+        assertThat(status(clear1)).isEqualTo(OutboxEventStatus.SENT);
+        verify(cartClient).clearCart();
+    }
+
+    @Test
+    void leasedEventsAreNotClaimedByAConcurrentRun() throws Exception {
+        Long reserve = enqueue(OutboxEventType.STOCK_RESERVE, 1L, reservation("r-1"));
+        CountDownLatch calling = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            calling.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(productClient).reserveStock(any());
+
+        CompletableFuture<Void> first = CompletableFuture.runAsync(outboxRelay::relay);
+        assertThat(calling.await(10, TimeUnit.SECONDS)).isTrue();
+        // the first run's claim has committed and its call is in flight, without a row lock held
+        outboxRelay.relay();
+        release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+
+        verify(productClient, times(1)).reserveStock(any());
+        assertThat(status(reserve)).isEqualTo(OutboxEventStatus.SENT);
+    }
+
+    @Test
+    void transientFailureIsRetriedWithBackoff() {
+        Long reserve = enqueue(OutboxEventType.STOCK_RESERVE, 1L, reservation("r-1"));
+        doThrow(feignError(503)).when(productClient).reserveStock(any());
+
+        outboxRelay.relay();
+
+        OutboxEvent event = outboxEventRepository.findById(reserve).orElseThrow();
+        assertThat(event.getStatus()).isEqualTo(OutboxEventStatus.PENDING);
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getLastError()).isNotBlank();
+        assertThat(event.getNextAttemptAt()).isAfter(LocalDateTime.now());
+
+        // not due yet
+        outboxRelay.relay();
+        verify(productClient, times(1)).reserveStock(any());
+    }
+
+    @Test
+    void lastAttemptMarksTheEventFailed() {
+        Long clear = enqueue(OutboxEventType.CART_CLEAR, 1L, null);
+        jdbcTemplate.update("update outbox_events set attempts = 2 where id = ?", clear);
+        doThrow(feignError(503)).when(cartClient).clearCart();
+
+        outboxRelay.relay();
+
+        OutboxEvent event = outboxEventRepository.findById(clear).orElseThrow();
+        assertThat(event.getStatus()).isEqualTo(OutboxEventStatus.FAILED);
+        assertThat(event.getAttempts()).isEqualTo(3);
+    }
+
+    @Test
+    void rejectedReservationCancelsTheOrderAndKeepsTheCart() {
+        Order order = OrderFixtures.order(1L, 2, OrderFixtures.PRICE);
+        order.setStockReservationId("r-1");
+        Long orderId = orderFixtures.persist(List.of(order)).get(0);
+        Long reserve = enqueue(OutboxEventType.STOCK_RESERVE, orderId, reservation("r-1"));
+        Long clear = enqueue(OutboxEventType.CART_CLEAR, orderId, null);
+        doThrow(feignError(400)).when(productClient).reserveStock(any());
+
+        outboxRelay.relay();
+
+        assertThat(outboxEventRepository.findById(reserve).orElseThrow())
+                .satisfies(event -> {
+                    assertThat(event.getStatus()).isEqualTo(OutboxEventStatus.FAILED);
+                    assertThat(event.getAttempts()).isEqualTo(1);
+                });
+        assertThat(status(clear)).isEqualTo(OutboxEventStatus.FAILED);
+        assertThat(orderRepository.findById(orderId).orElseThrow()).satisfies(canceled -> {
+            assertThat(canceled.getOrderStatus()).isEqualTo(OrderStatus.CANCELED);
+            assertThat(canceled.getPaymentStatus()).isEqualTo(PaymentStatus.FAILED);
+            assertThat(canceled.getCheckoutStatus()).isEqualTo(CheckoutStatus.FAILED);
+        });
+        // a reservation that timed out may have been taken after all, so it is released
+        assertThat(outboxEventRepository.findByAggregateIdAndStatus(orderId, OutboxEventStatus.PENDING))
+                .singleElement()
+                .satisfies(event -> assertThat(event.getType()).isEqualTo(OutboxEventType.STOCK_RELEASE));
+        verify(orderStatisticsService).recordMoved(any(Order.class), any());
+        verify(cartClient, never()).clearCart();
+    }
+
+    @Test
+    void messagesAreSentOnlyOnceTheBrokerConfirmedThem() {
+        Long success = enqueue(OutboxEventType.PAYMENT_SUCCESS, 7L, payment(7L));
+        Long failure = enqueue(OutboxEventType.PAYMENT_FAILURE, 8L, payment(8L));
+        RabbitOperations operations = mock(RabbitOperations.class);
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(operations));
+
+        outboxRelay.relay();
+
+        ArgumentCaptor<String> partitions = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Message> messages = ArgumentCaptor.forClass(Message.class);
+        verify(operations, times(2)).send(eq(PARTITIONED_EXCHANGE), partitions.capture(), messages.capture());
+        verify(operations).waitForConfirmsOrDie(anyLong());
+        assertThat(partitions.getAllValues())
+                .containsExactly(String.valueOf(partitionOf(7L, 8)), String.valueOf(partitionOf(8L, 8)));
+        assertThat(messages.getAllValues())
+                .extracting(message -> message.getMessageProperties().<String>getHeader(OUTCOME_HEADER))
+                .containsExactly("PAYMENT_SUCCESS", "PAYMENT_FAILURE");
+        assertThat(status(success)).isEqualTo(OutboxEventStatus.SENT);
+        assertThat(status(failure)).isEqualTo(OutboxEventStatus.SENT);
+    }
+
+    @Test
+    void unconfirmedMessagesStayPending() {
+        Long success = enqueue(OutboxEventType.PAYMENT_SUCCESS, 7L, payment(7L));
+        when(rabbitTemplate.invoke(any())).thenThrow(new AmqpTimeoutException("no confirm"));
+
+        outboxRelay.relay();
+
+        OutboxEvent event = outboxEventRepository.findById(success).orElseThrow();
+        assertThat(event.getStatus()).isEqualTo(OutboxEventStatus.PENDING);
+        assertThat(event.getAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    void sentAndFailedEventsArePurgedAfterTheRetention() {
+        Long sent = enqueue(OutboxEventType.CART_CLEAR, 1L, null);
+        Long failed = enqueue(OutboxEventType.CART_CLEAR, 2L, null);
+        Long recentFailure = enqueue(OutboxEventType.CART_CLEAR, 3L, null);
+        jdbcTemplate.update("update outbox_events set status = 'SENT', sent_at = now() - interval '8 days' where id = ?", sent);
+        jdbcTemplate.update("update outbox_events set status = 'FAILED', created_at = now() - interval '8 days' where id = ?", failed);
+        jdbcTemplate.update("update outbox_events set status = 'FAILED' where id = ?", recentFailure);
+
+        outboxRelay.deleteFinishedEvents();
+
+        assertThat(outboxEventRepository.findAll())
+                .extracting(OutboxEvent::getId)
+                .containsExactly(recentFailure);
+    }
+
+    private Long enqueue(OutboxEventType type, Long aggregateId, Object payload) {
+        outboxService.enqueue(type, aggregateId, payload);
+        return outboxEventRepository.findAll().stream()
+                .map(OutboxEvent::getId)
+                .max(Long::compare)
+                .orElseThrow();
+    }
+
+    private OutboxEventStatus status(Long eventId) {
+        return outboxEventRepository.findById(eventId).orElseThrow().getStatus();
+    }
+
+    private static StockReservationRequest reservation(String reservationId) {
+        return new StockReservationRequest(reservationId, List.of(new StockReservationItem(1L, 1)));
+    }
+
+    private static Map<String, Object> payment(Long orderId) {
+        return Map.of("orderId", orderId);
+    }
+
+    private static FeignException feignError(int status) {
+        Request request = Request.create(Request.HttpMethod.POST, "http://product-service/products/stock/reservations",
+                Map.of(), null, StandardCharsets.UTF_8, null);
+        return FeignException.errorStatus("ProductClient#reserveStock",
+                feign.Response.builder().request(request).status(status).headers(Map.of()).build());
+    }
+}
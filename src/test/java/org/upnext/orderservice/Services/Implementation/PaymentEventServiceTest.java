@@ -0,0 +1,207 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.upnext.orderservice.Enums.OutboxEventType;
+import org.upnext.orderservice.Mappers.OrderMapperImpl;
+import org.upnext.orderservice.Models.Order;
+import org.upnext.orderservice.OrderFixtures;
+import org.upnext.orderservice.PostgresJpaTest;
+import org.upnext.orderservice.Repositories.OrderRepository;
+import org.upnext.orderservice.Repositories.OutboxEventRepository;
+import org.upnext.sharedlibrary.Dtos.SuccessfulPaymentEvent;
+import org.upnext.sharedlibrary.Enums.OrderStatus;
+import org.upnext.sharedlibrary.Enums.PaymentStatus;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Statement counts of a batch against the same events applied one message at a time,
+ * which is what the listeners did before batching. A batch takes one load and one JDBC
+ * batch per 50 orders, so statements per event fall with the batch size. Also covers the
+ * outcomes that must not be applied: successes for canceled orders and late failures.
+ */
+@PostgresJpaTest
+@Import({PaymentEventService.class, OutboxService.class, OrderMapperImpl.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class PaymentEventServiceTest {
+
+    @Autowired
+    private PaymentEventService paymentEventService;
+
+    @MockitoBean
+    private OrderHistoryCache orderHistoryCache;
+
+    @MockitoBean
+    private OrderStatisticsService orderStatisticsService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrderFixtures orderFixtures;
+
+    @Autowired
+    private Statistics statistics;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 25, 100})
+    void successBatchTakesOneLoadAndOneUpdatePerChunk(int batchSize) {
+        List<SuccessfulPaymentEvent> events = events(persistOrders(batchSize));
+        statistics.clear();
+
+        int updated = paymentEventService.applySuccesses(events);
+        entityManager.flush();
+
+        assertThat(updated).isEqualTo(batchSize);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + chunks(batchSize));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 25, 100})
+    void failureBatchTakesAConstantNumberOfStatements(int batchSize) {
+        List<SuccessfulPaymentEvent> events = events(persistOrders(batchSize));
+        statistics.clear();
+
+        paymentEventService.applyFailures(events);
+        entityManager.flush();
+        entityManager.clear();
+
+        // the load, then per 50 orders the item load, the update batch, the outbox insert batch and a sequence call
+        assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(1 + 4 * chunks(batchSize));
+        assertThat(orderRepository.findAll()).allSatisfy(order -> {
+            assertThat(order.getOrderStatus()).isEqualTo(OrderStatus.CANCELED);
+            assertThat(order.getPaymentStatus()).isEqualTo(PaymentStatus.FAILED);
+        });
+    }
+
+    @Test
+    void batchBeatsOneMessageAtATime() {
+        List<SuccessfulPaymentEvent> singles = events(persistOrders(100));
+        List<SuccessfulPaymentEvent> batch = events(persistOrders(100));
+
+        statistics.clear();
+        singles.forEach(event -> {
+            paymentEventService.applySuccesses(List.of(event));
+            entityManager.flush();
+        });
+        long singleStatements = statistics.getPrepareStatementCount();
+
+        entityManager.clear();
+        statistics.clear();
+        paymentEventService.applySuccesses(batch);
+        entityManager.flush();
+        long batchStatements = statistics.getPrepareStatementCount();
+
+        assertThat(singleStatements).isEqualTo(200);
+        assertThat(batchStatements).isEqualTo(3);
+    }
+
+    @Test
+    void successForCanceledOrderIsRefundedInsteadOfApplied() {
+        Long orderId = persistOrders(1).get(0);
+        Order canceled = orderRepository.findById(orderId).orElseThrow();
+        canceled.setOrderStatus(OrderStatus.CANCELED);
+        canceled.setPaymentStatus(PaymentStatus.CANCELED);
+        canceled.setPaymentTransactionId("cs_test_canceled");
+        entityManager.flush();
+        entityManager.clear();
+
+        int updated = paymentEventService.applySuccesses(events(List.of(orderId)));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(updated).isZero();
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        assertThat(order.getOrderStatus()).isEqualTo(OrderStatus.CANCELED);
+        assertThat(order.getPaymentStatus()).isEqualTo(PaymentStatus.CANCELED);
+        assertThat(outboxEventRepository.findAll())
+                .singleElement()
+                .satisfies(event -> {
+                    assertThat(event.getType()).isEqualTo(OutboxEventType.PAYMENT_REFUND);
+                    assertThat(event.getAggregateId()).isEqualTo(orderId);
+                    assertThat(event.getPayload()).isEqualTo("\"cs_test_canceled\"");
+                });
+    }
+
+    @Test
+    void lateFailureLeavesPaidOrderConfirmed() {
+        List<SuccessfulPaymentEvent> events = events(persistOrders(1));
+        paymentEventService.applySuccesses(events);
+        entityManager.flush();
+        entityManager.clear();
+
+        int canceled = paymentEventService.applyFailures(events);
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(canceled).isZero();
+        assertThat(orderRepository.findAll()).singleElement().satisfies(order -> {
+            assertThat(order.getOrderStatus()).isEqualTo(OrderStatus.CONFIRMED);
+            assertThat(order.getPaymentStatus()).isEqualTo(PaymentStatus.PAID);
+        });
+        assertThat(outboxEventRepository.findAll()).isEmpty();
+    }
+
+    @Test
+    void successAndFailureOfOneOrderInABatchKeepTheSuccess() {
+        SuccessfulPaymentEvent event = events(persistOrders(1)).get(0);
+
+        Map<Long, OrderStatus> moved = paymentEventService.applyInOrder(List.of(
+                new PaymentEventService.PaymentOutcome(true, event),
+                new PaymentEventService.PaymentOutcome(false, event)));
+        entityManager.flush();
+        entityManager.clear();
+
+        assertThat(moved).containsExactly(Map.entry(event.getOrderId(), OrderStatus.CONFIRMED));
+        assertThat(orderRepository.findAll()).singleElement().satisfies(order ->
+                assertThat(order.getPaymentStatus()).isEqualTo(PaymentStatus.PAID));
+    }
+
+    @Test
+    void batchReportsOnlyTheOrdersItMoved() {
+        List<SuccessfulPaymentEvent> events = events(persistOrders(2));
+        paymentEventService.applySuccesses(List.of(events.get(0)));
+        entityManager.flush();
+        entityManager.clear();
+
+        // already paid, failed, unknown
+        Map<Long, OrderStatus> moved = paymentEventService.applyInOrder(List.of(
+                new PaymentEventService.PaymentOutcome(true, events.get(0)),
+                new PaymentEventService.PaymentOutcome(false, events.get(1)),
+                new PaymentEventService.PaymentOutcome(true, SuccessfulPaymentEvent.builder().orderId(-1L).build())));
+
+        assertThat(moved).containsExactly(Map.entry(events.get(1).getOrderId(), OrderStatus.CANCELED));
+    }
+
+    private static int chunks(int orders) {
+        return (orders + 49) / 50;
+    }
+
+    private List<SuccessfulPaymentEvent> events(List<Long> orderIds) {
+        return orderIds.stream()
+                .map(orderId -> SuccessfulPaymentEvent.builder().orderId(orderId).userId(1L).build())
+                .toList();
+    }
+
+    private List<Long> persistOrders(int count) {
+        return orderFixtures.persistOrders(count, 1);
+    }
+}
@@ -0,0 +1,281 @@
+package org.upnext.orderservice.Services.Implementation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatcher;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnectionAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.RabbitMQContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+import org.upnext.orderservice.Configurations.PaymentRabbitMqConfig;
+import org.upnext.orderservice.Services.Implementation.PaymentEventService.PaymentOutcome;
+import org.upnext.sharedlibrary.Enums.OrderStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.upnext.orderservice.Configurations.PaymentRabbitMqConfig.OCCURRED_AT_HEADER;
+import static org.upnext.orderservice.Configurations.PaymentRabbitMqConfig.OUTCOME_HEADER;
+import static org.upnext.orderservice.Configurations.PaymentRabbitMqConfig.PARTITIONED_EXCHANGE;
+import static org.upnext.orderservice.Configurations.PaymentRabbitMqConfig.partitionOf;
+import static org.upnext.orderservice.Configurations.PaymentRabbitMqConfig.partitionQueue;
+
+/**
+ * The partition consumer against a real broker, with the outcomes it reads handed to a mock
+ * {@link PaymentEventService}: where an order's events are routed, how the outcome header is
+ * read, that unreadable messages are dropped without blocking their partition, and that a
+ * partition's events reach applyInOrder in publish order. Every test uses fresh order ids, so
+ * messages a previous test left in flight are told apart.
+ */
+@SpringBootTest(classes = {PaymentRabbitMqConfig.class, PaymentPartitionConsumer.class},
+        properties = "payment.partitions=" + PaymentPartitionConsumerTest.PARTITIONS)
+@ImportAutoConfiguration({ServiceConnectionAutoConfiguration.class, RabbitAutoConfiguration.class, JacksonAutoConfiguration.class})
+@Import(PaymentPartitionConsumerTest.BrokerConfiguration.class)
+@Testcontainers(disabledWithoutDocker = true)
+class PaymentPartitionConsumerTest {
+
+    static final int PARTITIONS = 4;
+    private static final long TIMEOUT_MS = 10_000;
+    private static final AtomicLong ORDER_IDS = new AtomicLong(1000);
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private AmqpAdmin amqpAdmin;
+
+    @Autowired
+    private RabbitListenerEndpointRegistry listeners;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoBean
+    private PaymentEventService paymentEventService;
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class BrokerConfiguration {
+
+        @Bean
+        @ServiceConnection
+        RabbitMQContainer rabbitContainer() {
+            return new RabbitMQContainer(DockerImageName.parse("rabbitmq:3.13-alpine"));
+        }
+
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Test
+    void eventsOfAnOrderLandOnItsPartitionQueue() throws InterruptedException {
+        Long orderId = ORDER_IDS.incrementAndGet();
+        int partition = partitionOf(orderId, PARTITIONS);
+        MessageListenerContainer container = listeners.getListenerContainer("payment-partition-" + partition);
+
+        container.stop();
+        try {
+            publish(orderId, "PAYMENT_SUCCESS");
+            publish(orderId, "PAYMENT_FAILURE");
+            assertThat(awaitDepth(partitionQueue(partition), 2)).isEqualTo(2);
+        } finally {
+            container.start();
+        }
+
+        verify(paymentEventService, timeout(TIMEOUT_MS).atLeastOnce()).applyInOrder(argThat(applies(orderId)));
+        assertThat(awaitDepth(partitionQueue(partition), 0)).isZero();
+    }
+
+    @Test
+    void outcomeHeaderDecidesSuccessOrFailure() {
+        Long paid = ORDER_IDS.incrementAndGet();
+        Long declined = ORDER_IDS.incrementAndGet();
+
+        publish(paid, "PAYMENT_SUCCESS");
+        publish(declined, "PAYMENT_FAILURE");
+
+        verify(paymentEventService, timeout(TIMEOUT_MS).atLeastOnce()).applyInOrder(argThat(applies(paid)));
+        verify(paymentEventService, timeout(TIMEOUT_MS).atLeastOnce()).applyInOrder(argThat(applies(declined)));
+        assertThat(applied(List.of(paid, declined)))
+                .extracting(outcome -> outcome.event().getOrderId(), PaymentOutcome::success)
+                .containsExactlyInAnyOrder(tuple(paid, true), tuple(declined, false));
+    }
+
+    @Test
+    void unreadableMessagesAreDroppedWithoutBlockingThePartition() {
+        Long orderId = ORDER_IDS.incrementAndGet();
+
+        // an outcome this version does not know is not taken for a failure
+        publish(orderId, "PAYMENT_REFUND", body(orderId));
+        publish(orderId, null, body(orderId));
+        publish(orderId, "PAYMENT_SUCCESS", "not json".getBytes(StandardCharsets.UTF_8));
+        publish(orderId, "PAYMENT_SUCCESS", "{}".getBytes(StandardCharsets.UTF_8));
+        publish(orderId, "PAYMENT_FAILURE", body(orderId));
+
+        verify(paymentEventService, timeout(TIMEOUT_MS).atLeastOnce()).applyInOrder(argThat(applies(orderId)));
+        assertThat(applied(List.of(orderId)))
+                .singleElement()
+                .satisfies(outcome -> assertThat(outcome.success()).isFalse());
+        assertThat(applied()).allSatisfy(outcome -> assertThat(outcome.event().getOrderId()).isNotNull());
+    }
+
+    @Test
+    void eventsOfOnePartitionAreAppliedInPublishOrder() {
+        List<Long> orderIds = sharingOnePartition(5);
+        int partition = partitionOf(orderIds.get(0), PARTITIONS);
+        MessageListenerContainer container = listeners.getListenerContainer("payment-partition-" + partition);
+        List<Boolean> published = new ArrayList<>();
+
+        // queued up while the consumer is stopped, so they arrive as one batch
+        container.stop();
+        try {
+            for (int round = 0; round < 4; round++) {
+                for (Long orderId : orderIds) {
+                    boolean success = (round + orderId) % 2 == 0;
+                    publish(orderId, success ? "PAYMENT_SUCCESS" : "PAYMENT_FAILURE");
+                    published.add(success);
+                }
+            }
+        } finally {
+            container.start();
+        }
+
+        Long last = orderIds.get(orderIds.size() - 1);
+        verify(paymentEventService, timeout(TIMEOUT_MS).atLeastOnce()).applyInOrder(argThat(applies(last)));
+        List<PaymentOutcome> applied = applied(orderIds);
+        assertThat(applied).hasSize(published.size());
+        for (int i = 0; i < applied.size(); i++) {
+            assertThat(applied.get(i).event().getOrderId()).isEqualTo(orderIds.get(i % orderIds.size()));
+            assertThat(applied.get(i).success()).isEqualTo(published.get(i));
+        }
+    }
+
+    @Test
+    void statusUpdateIsTimedOnlyForOrdersTheBatchMoved() throws InterruptedException {
+        List<Long> orderIds = sharingOnePartition(2);
+        Long confirmedOrder = orderIds.get(0);
+        Long alreadyPaid = orderIds.get(1);
+        when(paymentEventService.applyInOrder(argThat(applies(confirmedOrder))))
+                .thenReturn(Map.of(confirmedOrder, OrderStatus.CONFIRMED));
+        long confirmedBefore = statusUpdates(OrderStatus.CONFIRMED);
+        long canceledBefore = statusUpdates(OrderStatus.CANCELED);
+
+        publish(alreadyPaid, "PAYMENT_SUCCESS", body(alreadyPaid), System.currentTimeMillis());
+        publish(confirmedOrder, "PAYMENT_FAILURE", body(confirmedOrder), System.currentTimeMillis());
+        publish(confirmedOrder, "PAYMENT_SUCCESS", body(confirmedOrder), System.currentTimeMillis());
+
+        // the partition is consumed in order, so the order that was not moved has been handled by then
+        assertThat(awaitStatusUpdates(OrderStatus.CONFIRMED, confirmedBefore + 1)).isEqualTo(confirmedBefore + 1);
+        assertThat(statusUpdates(OrderStatus.CANCELED)).isEqualTo(canceledBefore);
+    }
+
+    private long statusUpdates(OrderStatus status) {
+        return meterRegistry.get("payment.webhook.status.update").tag("outcome", status.name()).timer().count();
+    }
+
+    private long awaitStatusUpdates(OrderStatus status, long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (statusUpdates(status) < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        return statusUpdates(status);
+    }
+
+    private void publish(Long orderId, String outcome) {
+        publish(orderId, outcome, body(orderId));
+    }
+
+    private void publish(Long orderId, String outcome, byte[] body) {
+        publish(orderId, outcome, body, null);
+    }
+
+    private void publish(Long orderId, String outcome, byte[] body, Long occurredAt) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        if (outcome != null) {
+            properties.setHeader(OUTCOME_HEADER, outcome);
+        }
+        if (occurredAt != null) {
+            properties.setHeader(OCCURRED_AT_HEADER, occurredAt);
+        }
+        rabbitTemplate.send(PARTITIONED_EXCHANGE, String.valueOf(partitionOf(orderId, PARTITIONS)), new Message(body, properties));
+    }
+
+    private static byte[] body(Long orderId) {
+        return ("{\"orderId\":" + orderId + ",\"userId\":1}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static ArgumentMatcher<List<PaymentOutcome>> applies(Long orderId) {
+        return batch -> batch.stream().anyMatch(outcome -> orderId.equals(outcome.event().getOrderId()));
+    }
+
+    // every outcome handed to applyInOrder so far, in call order
+    @SuppressWarnings("unchecked")
+    private List<PaymentOutcome> applied() {
+        ArgumentCaptor<List<PaymentOutcome>> batches = ArgumentCaptor.forClass(List.class);
+        verify(paymentEventService, atLeastOnce()).applyInOrder(batches.capture());
+        return batches.getAllValues().stream().flatMap(List::stream).toList();
+    }
+
+    private List<PaymentOutcome> applied(List<Long> orderIds) {
+        return applied().stream()
+                .filter(outcome -> orderIds.contains(outcome.event().getOrderId()))
+                .toList();
+    }
+
+    private static List<Long> sharingOnePartition(int count) {
+        List<Long> orderIds = new ArrayList<>();
+        int partition = partitionOf(ORDER_IDS.incrementAndGet(), PARTITIONS);
+        while (orderIds.size() < count) {
+            Long orderId = ORDER_IDS.incrementAndGet();
+            if (partitionOf(orderId, PARTITIONS) == partition) {
+                orderIds.add(orderId);
+            }
+        }
+        return orderIds;
+    }
+
+    private int awaitDepth(String queue, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        int depth;
+        do {
+            QueueInformation information = amqpAdmin.getQueueInfo(queue);
+            depth = information == null ? -1 : information.getMessageCount();
+            if (depth == expected) {
+                break;
+            }
+            Thread.sleep(50);
+        } while (System.currentTimeMillis() < deadline);
+        return depth;
+    }
+}